@@ -0,0 +1,54 @@
+package com.encora.victorvazquez.todo_app.benchmark;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code InMemoryTodoRepository.findAll(status, text, priority)} for every
+ * filter combination. Selective filters ({@code status=done} is 1% of the
+ * dataset) should cost in proportion to the result, not the dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilterQueryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"none", "status", "priority", "text", "status+priority", "status+text", "text+priority", "status+text+priority"})
+    String filter;
+
+    private InMemoryTodoRepository repository;
+    private String status;
+    private String text;
+    private Todo.Priority priority;
+
+    @Setup
+    public void setUp() {
+        repository = TodoDatasets.populate(size);
+        status = filter.contains("status") ? "done" : null;
+        text = filter.contains("text") ? "invoice" : null;
+        priority = filter.contains("priority") ? Todo.Priority.HIGH : null;
+    }
+
+    @Benchmark
+    public List<Todo> findAll() {
+        return repository.findAll(status, text, priority);
+    }
+}
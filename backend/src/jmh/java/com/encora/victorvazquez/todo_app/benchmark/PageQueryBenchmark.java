@@ -0,0 +1,52 @@
+package com.encora.victorvazquez.todo_app.benchmark;
+
+import com.encora.victorvazquez.todo_app.todo.TodoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TodoService.getAllTodos} for the first page under every supported
+ * {@code sortBy} permutation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PageQueryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({
+        "none",
+        "priority_asc", "priority_desc", "duedate_asc", "duedate_desc",
+        "priority_asc-duedate_asc", "priority_asc-duedate_desc", "priority_desc-duedate_asc", "priority_desc-duedate_desc",
+        "duedate_asc-priority_asc", "duedate_asc-priority_desc", "duedate_desc-priority_asc", "duedate_desc-priority_desc"
+    })
+    String sortBy;
+
+    private TodoService service;
+    private String sort;
+
+    @Setup
+    public void setUp() {
+        service = new TodoService(TodoDatasets.populate(size));
+        sort = "none".equals(sortBy) ? null : sortBy;
+    }
+
+    @Benchmark
+    public TodoService.PageResponse firstPage() {
+        return service.getAllTodos(0, 10, sort, null, null, null);
+    }
+}
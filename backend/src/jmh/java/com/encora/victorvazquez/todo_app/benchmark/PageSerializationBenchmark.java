@@ -0,0 +1,70 @@
+package com.encora.victorvazquez.todo_app.benchmark;
+
+import com.encora.victorvazquez.todo_app.todo.TodoJson;
+import com.encora.victorvazquez.todo_app.todo.TodoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes one {@code GET /todos} page the way the message converters do:
+ * with Jackson's reflective bean serializer (the previous default), with the
+ * hand-written {@link TodoJson} serializers as JSON, whose rows come from the
+ * encoded-row cache after the first call, and as Smile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PageSerializationBenchmark {
+    @Param({"10", "100", "1000"})
+    int pageSize;
+
+    @Param({"reflective", "handwritten", "smile"})
+    String serializer;
+
+    private ObjectMapper mapper;
+    private TodoService.PageResponse page;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (!serializer.equals("reflective")) {
+            builder.modulesToInstall(new SimpleModule()
+                    .addSerializer(new TodoJson.TodoSerializer())
+                    .addSerializer(new TodoJson.PageResponseSerializer()));
+        }
+        if (serializer.equals("smile")) {
+            builder.factory(new SmileFactory());
+        }
+        mapper = builder.build();
+        page = new TodoService(TodoDatasets.populate(100_000)).getAllTodos(0, pageSize, "priority_desc", null, null, null);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        out.reset();
+        mapper.writeValue(out, page);
+        return out.size();
+    }
+}
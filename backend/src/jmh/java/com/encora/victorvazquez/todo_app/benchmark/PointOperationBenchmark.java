@@ -0,0 +1,56 @@
+package com.encora.victorvazquez.todo_app.benchmark;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent point reads and writes against the repository. Run with
+ * {@code -t} to change the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class PointOperationBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private InMemoryTodoRepository repository;
+
+    @Setup
+    public void setUp() {
+        repository = TodoDatasets.populate(size);
+    }
+
+    @Benchmark
+    public Optional<Todo> findById() {
+        return repository.findById(ThreadLocalRandom.current().nextLong(1, size + 1));
+    }
+
+    @Benchmark
+    public Todo saveExisting() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = random.nextLong(1, size + 1);
+        Todo todo = new Todo(id, "Updated " + TodoDatasets.WORDS[random.nextInt(TodoDatasets.WORDS.length)],
+                Todo.Priority.values()[random.nextInt(3)]);
+        return repository.save(todo);
+    }
+}
@@ -0,0 +1,103 @@
+package com.encora.victorvazquez.todo_app.benchmark;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import com.encora.victorvazquez.todo_app.todo.TodoService;
+import com.encora.victorvazquez.todo_app.todo.repository.WriteAheadLogTodoRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs {@code requests} concurrent "requests" (a durable create followed by a
+ * first-page read) against the write-ahead log store, on either a 200-thread
+ * platform pool (Tomcat's default) or one virtual thread per request. The
+ * virtual mode needs Java 21+, so only the platform mode runs by default; on
+ * Java 21 compare both with {@code -Djmh.args="ThreadingModeBenchmark -p threads=platform,virtual"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ThreadingModeBenchmark {
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform"})
+    String threads;
+
+    @Param({"1000", "10000"})
+    int requests;
+
+    private Path directory;
+    private WriteAheadLogTodoRepository repository;
+    private TodoService service;
+    private ExecutorService platformPool;
+    private SimpleAsyncTaskExecutor virtualExecutor;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("todo-threading");
+        repository = new WriteAheadLogTodoRepository(directory, Duration.ofHours(1));
+        service = new TodoService(repository);
+        if (threads.equals("virtual")) {
+            virtualExecutor = new SimpleAsyncTaskExecutor("todo-");
+            virtualExecutor.setVirtualThreads(true);
+        } else {
+            platformPool = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (platformPool != null) {
+            platformPool.shutdownNow();
+        }
+        repository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void createAndRead() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            int request = i;
+            Runnable task = () -> {
+                try {
+                    service.createTodo(new Todo("Request " + request, Todo.Priority.MEDIUM, null));
+                    service.getAllTodos(0, 10, "priority_desc", "undone", null, null);
+                } finally {
+                    done.countDown();
+                }
+            };
+            if (virtualExecutor != null) {
+                virtualExecutor.execute(task);
+            } else {
+                platformPool.execute(task);
+            }
+        }
+        done.await();
+    }
+}
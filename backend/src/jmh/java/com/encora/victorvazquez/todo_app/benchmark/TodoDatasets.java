@@ -0,0 +1,52 @@
+package com.encora.victorvazquez.todo_app.benchmark;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic datasets shared by the benchmarks: 1% done,
+ * 10% HIGH / 30% MEDIUM / 60% LOW priority, 75% with a due date and texts
+ * drawn from a small vocabulary so text filters have a realistic selectivity.
+ */
+final class TodoDatasets {
+    static final String[] WORDS = {
+        "invoice", "meeting", "groceries", "report", "dentist", "deploy", "review", "birthday",
+        "laundry", "budget", "flight", "refactor", "garden", "taxes", "interview", "backup"
+    };
+    private static final int CHUNK = 10_000;
+
+    private TodoDatasets() {
+    }
+
+    static InMemoryTodoRepository populate(int size) {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Todo> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < size; i++) {
+            chunk.add(randomTodo(random, base, i));
+            if (chunk.size() == CHUNK) {
+                repository.saveAll(chunk);
+                chunk = new ArrayList<>(CHUNK);
+            }
+        }
+        repository.saveAll(chunk);
+        return repository;
+    }
+
+    static Todo randomTodo(SplittableRandom random, LocalDateTime base, int i) {
+        int roll = random.nextInt(10);
+        Todo.Priority priority = roll == 0 ? Todo.Priority.HIGH : roll < 4 ? Todo.Priority.MEDIUM : Todo.Priority.LOW;
+        LocalDateTime dueDate = random.nextInt(4) == 0 ? null : base.plusMinutes(random.nextInt(525_600));
+        String text = "Task " + i + " " + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+        Todo todo = new Todo(text, priority, dueDate);
+        if (random.nextInt(100) == 0) {
+            todo.setDone(true);
+        }
+        return todo;
+    }
+}
@@ -0,0 +1,401 @@
+package com.encora.victorvazquez.todo_app.loadtest;
+
+import com.encora.victorvazquez.todo_app.TodoAppApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test of the todo API. Boots the application on a random
+ * port, seeds it through {@code POST /todos/import} and drives a fixed mix of
+ * requests from {@code concurrency} client threads: 70% filtered and sorted
+ * list queries, 20% creates and updates, 10% done, undone and deletes.
+ * Latencies go into one HdrHistogram per operation, and the percentile
+ * distributions are written as {@code .hgrm} files next to a summary.
+ *
+ * <p>Without {@code --rate} every client sends its next request as soon as
+ * the previous one returns, which measures capacity. With {@code --rate} the
+ * clients send at a fixed total rate and latency is counted from when each
+ * request was due, so a stall is charged to every request it delayed instead
+ * of being hidden by them (coordinated omission).
+ *
+ * <p>With {@code --targets} no application is started; the test drives
+ * already running nodes instead, e.g. a replication leader and its followers
+ * in separate JVMs. It seeds the first target, waits until every target
+ * serves the seeded todos and spreads the clients evenly over the targets.
+ * {@code --mix=reads} sends only list queries, to measure read scaling.
+ *
+ * <p>Options are {@code --name=value}: {@code todos}, {@code concurrency},
+ * {@code warmup}, {@code duration}, {@code rate}, {@code seed},
+ * {@code report}, {@code targets} (comma-separated base URLs) and
+ * {@code mix} ({@code default} or {@code reads}). Every other argument is
+ * passed to the application, e.g. {@code --todo.repository.type=wal}.
+ */
+public final class LoadTest {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final String[] SORTS = {null, "priority_asc", "priority_desc", "duedate_asc", "duedate_desc",
+            "priority_desc-duedate_asc"};
+    private static final String[] STATUSES = {null, "done", "undone"};
+    private static final String[] PRIORITIES = {"HIGH", "MEDIUM", "LOW"};
+    private static final String[] WORDS = {"report", "milk", "call", "review", "invoice", "deploy", "dentist", "gym"};
+
+    enum Operation {
+        LIST(70), CREATE(10), UPDATE(10), DONE(4), UNDONE(4), DELETE(2);
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final Operation[] MIX = mix();
+    private static final Operation[] READS = {Operation.LIST};
+    private static final Duration CATCH_UP_TIMEOUT = Duration.ofMinutes(1);
+
+    private final Options options;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Queue<Long> created = new ConcurrentLinkedQueue<>();
+    private List<URI> targets;
+    private volatile boolean running = true;
+
+    private LoadTest(Options options) {
+        this.options = options;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (!options.targets().isEmpty()) {
+            new LoadTest(options).run(options.targets());
+            return;
+        }
+        // Devtools would restart the application in a new class loader and
+        // run this main method a second time.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Path dataDirectory = Files.createTempDirectory("todo-loadtest");
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.org.springframework.web=warn",
+                "--todo.repository.wal.directory=" + dataDirectory,
+                "--todo.repository.mmap.file=" + dataDirectory.resolve("todos.mmap")));
+        appArgs.addAll(options.appArgs());
+        try (ConfigurableApplicationContext context = SpringApplication.run(TodoAppApplication.class,
+                appArgs.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            new LoadTest(options).run(List.of(URI.create("http://localhost:" + port)));
+        } finally {
+            try (Stream<Path> files = Files.walk(dataDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private void run(List<URI> targets) throws Exception {
+        this.targets = targets;
+        seed();
+        awaitSeeded();
+
+        List<Thread> clients = new ArrayList<>(options.concurrency());
+        long intervalNanos = options.rate() > 0 ? (long) (options.concurrency() * 1e9 / options.rate()) : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < options.concurrency(); i++) {
+            long firstDue = start + intervalNanos * i / options.concurrency();
+            SplittableRandom random = new SplittableRandom(options.seed() + i);
+            URI target = targets.get(i % targets.size());
+            Thread client = new Thread(() -> drive(target, random, firstDue, intervalNanos), "load-client-" + i);
+            client.start();
+            clients.add(client);
+        }
+
+        Thread.sleep(options.warmup().toMillis());
+        for (Operation operation : Operation.values()) {
+            recorders.get(operation).reset();
+            errors.get(operation).reset();
+        }
+        long measureStart = System.nanoTime();
+        Thread.sleep(options.duration().toMillis());
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, recorders.get(operation).getIntervalHistogram());
+        }
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+        running = false;
+        for (Thread client : clients) {
+            client.join();
+        }
+        report(histograms, seconds);
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder();
+        SplittableRandom random = new SplittableRandom(options.seed());
+        for (int i = 0; i < options.todos(); i++) {
+            body.append(objectMapper.writeValueAsString(randomTodo(random))).append('\n');
+        }
+        long started = System.nanoTime();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(targets.get(0).resolve("/todos/import"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+        }
+        System.out.printf("Seeded %d todos in %d ms%n", options.todos(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Waits until every target lists at least the seeded todos, i.e. until
+     * followers have replicated the import.
+     */
+    private void awaitSeeded() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + CATCH_UP_TIMEOUT.toNanos();
+        for (URI target : targets) {
+            while (true) {
+                HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(target.resolve("/todos?size=1")).build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() == 200
+                        && objectMapper.readTree(response.body()).get("totalItems").asLong() >= options.todos()) {
+                    break;
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(target + " did not catch up with the seeded todos");
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private void drive(URI target, SplittableRandom random, long firstDue, long intervalNanos) {
+        Operation[] mix = options.readsOnly() ? READS : MIX;
+        long due = firstDue;
+        while (running) {
+            long begin;
+            if (intervalNanos > 0) {
+                long now;
+                while ((now = System.nanoTime()) < due) {
+                    LockSupport.parkNanos(due - now);
+                }
+                begin = due;
+                due += intervalNanos;
+            } else {
+                begin = System.nanoTime();
+            }
+            Operation operation = mix[random.nextInt(mix.length)];
+            Long createdId = operation == Operation.DELETE ? created.poll() : null;
+            if (operation == Operation.DELETE && createdId == null) {
+                operation = Operation.CREATE;
+            }
+            boolean ok;
+            try {
+                ok = send(target, operation, random, createdId);
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin);
+            recorders.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            if (!ok) {
+                errors.get(operation).increment();
+            }
+        }
+    }
+
+    /**
+     * Sends one request of the given kind. Updates, done and undone target
+     * seeded todos, which are never deleted; deletes remove
+     * {@code createdId}, a todo this run created.
+     */
+    private boolean send(URI target, Operation operation, SplittableRandom random, Long createdId)
+            throws IOException, InterruptedException {
+        long seededId = 1 + random.nextInt(options.todos());
+        HttpRequest request = switch (operation) {
+            case LIST -> HttpRequest.newBuilder(target.resolve(listQuery(random))).GET().build();
+            case CREATE -> json(target, "/todos", "POST", randomTodo(random));
+            case UPDATE -> json(target, "/todos/" + seededId, "PUT", randomTodo(random));
+            case DONE -> HttpRequest.newBuilder(target.resolve("/todos/" + seededId + "/done"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build();
+            case UNDONE -> HttpRequest.newBuilder(target.resolve("/todos/" + seededId + "/undone"))
+                    .PUT(HttpRequest.BodyPublishers.noBody()).build();
+            case DELETE -> HttpRequest.newBuilder(target.resolve("/todos/" + createdId)).DELETE().build();
+        };
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        boolean ok = response.statusCode() / 100 == 2;
+        if (ok && operation == Operation.CREATE) {
+            created.add(objectMapper.readTree(response.body()).get("id").asLong());
+        }
+        return ok;
+    }
+
+    private String listQuery(SplittableRandom random) {
+        StringBuilder query = new StringBuilder("/todos?page=").append(random.nextInt(5)).append("&size=10");
+        String sortBy = SORTS[random.nextInt(SORTS.length)];
+        if (sortBy != null) {
+            query.append("&sortBy=").append(sortBy);
+        }
+        String status = STATUSES[random.nextInt(STATUSES.length)];
+        if (status != null) {
+            query.append("&status=").append(status);
+        }
+        if (random.nextInt(3) == 0) {
+            query.append("&priority=").append(PRIORITIES[random.nextInt(PRIORITIES.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            query.append("&text=").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return query.toString();
+    }
+
+    private HttpRequest json(URI target, String path, String method, Map<String, Object> body) throws IOException {
+        return HttpRequest.newBuilder(target.resolve(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private static Map<String, Object> randomTodo(SplittableRandom random) {
+        Map<String, Object> todo = new LinkedHashMap<>();
+        todo.put("text", WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(1_000_000));
+        todo.put("priority", PRIORITIES[random.nextInt(PRIORITIES.length)]);
+        if (random.nextBoolean()) {
+            todo.put("dueDate", LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(random.nextInt(525_600)).toString());
+        }
+        return todo;
+    }
+
+    private void report(Map<Operation, Histogram> histograms, double seconds) throws IOException {
+        Files.createDirectories(options.report());
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%d clients on %d node(s), %s, %.1f s measured after %s warm-up%n",
+                options.concurrency(), targets.size(),
+                options.rate() > 0 ? String.format("%.0f req/s target", options.rate()) : "closed loop",
+                seconds, options.warmup()));
+        summary.append(String.format("%-8s %10s %10s %8s %9s %9s %9s %9s %9s%n",
+                "op", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            all.add(histogram);
+            summary.append(row(operation.name().toLowerCase(), histogram, errors.get(operation).sum(), seconds));
+            writeDistribution(histogram, operation.name().toLowerCase());
+        }
+        long totalErrors = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        summary.append(row("all", all, totalErrors, seconds));
+        writeDistribution(all, "all");
+        Files.writeString(options.report().resolve("summary.txt"), summary);
+        System.out.print(summary);
+        System.out.println("Percentile distributions written to " + options.report().toAbsolutePath());
+    }
+
+    private static String row(String name, Histogram histogram, long errors, double seconds) {
+        return String.format("%-8s %10d %10.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds, errors,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private void writeDistribution(Histogram histogram, String name) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(options.report().resolve(name + ".hgrm")),
+                false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+
+    private static Operation[] mix() {
+        List<Operation> mix = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            for (int i = 0; i < operation.weight; i++) {
+                mix.add(operation);
+            }
+        }
+        return mix.toArray(Operation[]::new);
+    }
+
+    record Options(int todos, int concurrency, Duration warmup, Duration duration, double rate, long seed, Path report,
+                   List<URI> targets, boolean readsOnly, List<String> appArgs) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>(Map.of(
+                    "todos", "100000",
+                    "concurrency", "32",
+                    "warmup", "PT10S",
+                    "duration", "PT30S",
+                    "rate", "0",
+                    "seed", "42",
+                    "report", "target/loadtest",
+                    "targets", "",
+                    "mix", "default"));
+            List<String> appArgs = new ArrayList<>();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                String name = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : null;
+                if (name != null && values.containsKey(name)) {
+                    values.put(name, arg.substring(equals + 1));
+                } else {
+                    appArgs.add(arg);
+                }
+            }
+            Options options = new Options(Integer.parseInt(values.get("todos")),
+                    Integer.parseInt(values.get("concurrency")),
+                    Duration.parse(values.get("warmup")),
+                    Duration.parse(values.get("duration")),
+                    Double.parseDouble(values.get("rate")),
+                    Long.parseLong(values.get("seed")),
+                    Path.of(values.get("report")),
+                    Stream.of(values.get("targets").split(",")).filter(target -> !target.isBlank()).map(URI::create).toList(),
+                    values.get("mix").equals("reads"),
+                    appArgs);
+            if (options.todos() < 1 || options.concurrency() < 1) {
+                throw new IllegalArgumentException("todos and concurrency must be positive");
+            }
+            if (!values.get("mix").equals("default") && !values.get("mix").equals("reads")) {
+                throw new IllegalArgumentException("mix must be default or reads");
+            }
+            return options;
+        }
+    }
+}
@@ -7,6 +7,8 @@ public interface BaseRepository<T, ID> {
     List<T> findAll();
     Optional<T> findById(ID id);
     T save(T entity);
+    List<T> saveAll(Iterable<T> entities);
     void deleteById(ID id);
+    void deleteAllById(Iterable<ID> ids);
     boolean existsById(ID id);
 } 
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.encora.victorvazquez.todo_app.config;
+
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicationFollower;
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicationLog;
+import com.encora.victorvazquez.todo_app.todo.repository.TenantShardedTodoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Replication roles selected by {@code todo.replication.role}. A leader keeps
+ * its configured store and logs every mutation for followers; a follower
+ * replaces the store with in-memory replicas of the leader's data and
+ * forwards writes to {@code todo.replication.leader-url}. Both authenticate
+ * with {@code todo.replication.secret}.
+ */
+@Configuration
+public class ReplicationConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.replication.role", havingValue = "leader")
+    public ReplicationLog replicationLog(@Value("${todo.replication.log-capacity:100000}") int capacity) {
+        return new ReplicationLog(capacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.replication.role", havingValue = "follower")
+    public ReplicationFollower replicationFollower(
+            @Value("${todo.replication.leader-url}") URI leaderUrl,
+            @Value("${todo.replication.secret:}") String secret,
+            @Value("${todo.replication.id-block:1000}") int idBlock,
+            @Value("${todo.replication.poll-wait:PT10S}") Duration pollWait,
+            @Value("${todo.replication.write-timeout:PT5S}") Duration writeTimeout
+    ) {
+        ReplicationFollower follower = new ReplicationFollower(leaderUrl, secret, idBlock, pollWait, writeTimeout);
+        follower.start();
+        return follower;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.replication.role", havingValue = "follower")
+    public TenantShardedTodoRepository replicaTodoRepository(ReplicationFollower follower) {
+        return follower.repository();
+    }
+}
@@ -0,0 +1,124 @@
+package com.encora.victorvazquez.todo_app.config;
+
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.MappedTodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicationLog;
+import com.encora.victorvazquez.todo_app.todo.repository.TenantShardedTodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.WriteAheadLogTodoRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Creates the todo store selected by {@code todo.repository.type}, sharded per
+ * tenant. The default tenant keeps the configured location, so existing data
+ * stays where it was; every other tenant gets a {@code tenants/<id>}
+ * directory next to it. Only {@code todo.tenants.max} tenants can store
+ * todos. With {@code todo.repository.warm-up=background} the
+ * persistent stores recover on a background thread while the application
+ * starts. On a replication leader every shard reports its
+ * mutations to the {@link ReplicationLog}; followers get their store from
+ * {@link ReplicationConfig} instead.
+ */
+@Configuration
+@ConditionalOnExpression("'${todo.replication.role:none}' != 'follower'")
+public class RepositoryConfig {
+    private static final String TENANTS_DIRECTORY = "tenants";
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.repository.type", havingValue = "memory", matchIfMissing = true)
+    public TenantShardedTodoRepository inMemoryTodoRepository(
+            @Value("${todo.tenants.max:1000}") int maxTenants,
+            ObjectProvider<ReplicationLog> replicationLog
+    ) {
+        return new TenantShardedTodoRepository(tenant -> replicated(new InMemoryTodoRepository(), tenant, replicationLog),
+                List.of(), false, maxTenants);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.repository.type", havingValue = "wal")
+    public TenantShardedTodoRepository writeAheadLogTodoRepository(
+            @Value("${todo.repository.wal.directory:data}") Path directory,
+            @Value("${todo.repository.wal.snapshot-interval:PT5M}") Duration snapshotInterval,
+            @Value("${todo.repository.warm-up:eager}") String warmUp,
+            @Value("${todo.tenants.max:1000}") int maxTenants,
+            ObjectProvider<ReplicationLog> replicationLog
+    ) throws IOException {
+        return new TenantShardedTodoRepository(tenant -> {
+            try {
+                return replicated(new WriteAheadLogTodoRepository(tenantDirectory(directory, tenant), snapshotInterval),
+                        tenant, replicationLog);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, existingTenants(directory), inBackground(warmUp), maxTenants);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "todo.repository.type", havingValue = "mmap")
+    public TenantShardedTodoRepository mappedTodoRepository(
+            @Value("${todo.repository.mmap.file:data/todos.mmap}") Path file,
+            @Value("${todo.repository.warm-up:eager}") String warmUp,
+            @Value("${todo.tenants.max:1000}") int maxTenants,
+            ObjectProvider<ReplicationLog> replicationLog
+    ) throws IOException {
+        Path directory = file.getParent() == null ? Path.of("") : file.getParent();
+        return new TenantShardedTodoRepository(tenant -> {
+            try {
+                return replicated(new MappedTodoRepository(tenantDirectory(directory, tenant).resolve(file.getFileName())),
+                        tenant, replicationLog);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, existingTenants(directory), inBackground(warmUp), maxTenants);
+    }
+
+    private static boolean inBackground(String warmUp) {
+        return switch (warmUp) {
+            case "eager" -> false;
+            case "background" -> true;
+            default -> throw new IllegalArgumentException("todo.repository.warm-up must be eager or background, not " + warmUp);
+        };
+    }
+
+    private static TodoRepository replicated(TodoRepository shard, String tenant, ObjectProvider<ReplicationLog> replicationLog) {
+        ReplicationLog log = replicationLog.getIfAvailable();
+        if (log != null) {
+            log.attach(shard, tenant);
+        }
+        return shard;
+    }
+
+    private static Path tenantDirectory(Path base, String tenant) {
+        return TenantContext.DEFAULT_TENANT.equals(tenant) ? base : base.resolve(TENANTS_DIRECTORY).resolve(tenant);
+    }
+
+    private static List<String> existingTenants(Path base) throws IOException {
+        List<String> tenants = new ArrayList<>(List.of(TenantContext.DEFAULT_TENANT));
+        Path directory = base.resolve(TENANTS_DIRECTORY);
+        if (!Files.isDirectory(directory)) {
+            return tenants;
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.filter(Files::isDirectory)
+                    .map(entry -> entry.getFileName().toString())
+                    .filter(tenant -> TenantContext.isValid(tenant) && !TenantContext.DEFAULT_TENANT.equals(tenant))
+                    .sorted()
+                    .forEach(tenants::add);
+        }
+        return tenants;
+    }
+}
@@ -0,0 +1,49 @@
+package com.encora.victorvazquez.todo_app.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Chooses between platform and virtual threads from
+ * {@code spring.threads.virtual.enabled}. On Java 21+ Spring Boot already moves
+ * Tomcat request handling onto virtual threads when the property is set; this
+ * class gives the todo background work (event delivery) the same treatment and
+ * falls back to a bounded platform pool otherwise, so a burst of tasks, such
+ * as one event for thousands of subscribers, queues instead of starting a
+ * thread per task.
+ */
+@Configuration
+public class ThreadingConfig {
+    public static final String TODO_TASK_EXECUTOR = "todoTaskExecutor";
+
+    private static final int PLATFORM_THREADS = 64;
+    private static final int PLATFORM_QUEUE_CAPACITY = 10_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    @Bean(TODO_TASK_EXECUTOR)
+    public AsyncTaskExecutor todoTaskExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            logger.info("Running request handling and todo tasks on virtual threads");
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("todo-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        logger.info("Running request handling and todo tasks on platform threads");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("todo-");
+        executor.setCorePoolSize(PLATFORM_THREADS);
+        executor.setMaxPoolSize(PLATFORM_THREADS);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(PLATFORM_QUEUE_CAPACITY);
+        executor.setDaemon(true);
+        return executor;
+    }
+}
@@ -0,0 +1,48 @@
+package com.encora.victorvazquez.todo_app.config;
+
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicationFollower;
+import com.encora.victorvazquez.todo_app.todo.repository.TenantShardedTodoRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reports {@code OUT_OF_SERVICE} until the todo store is warm: the shards of
+ * existing tenants are recovered and indexed and, on a replication follower,
+ * the leader's snapshot is loaded. It is part of the readiness group, so
+ * {@code /actuator/health/readiness} only accepts traffic after warm-up.
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+    private final TenantShardedTodoRepository repository;
+    private final ObjectProvider<ReplicationFollower> follower;
+
+    public WarmUpHealthIndicator(TenantShardedTodoRepository repository, ObjectProvider<ReplicationFollower> follower) {
+        this.repository = repository;
+        this.follower = follower;
+    }
+
+    @Override
+    public Health health() {
+        CompletableFuture<Void> warmUp = repository.warmUp();
+        if (!warmUp.isDone()) {
+            return Health.outOfService().withDetail("warmUp", "opening tenant shards").build();
+        }
+        try {
+            warmUp.get();
+        } catch (ExecutionException e) {
+            return Health.down(e.getCause()).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Health.unknown().build();
+        }
+        ReplicationFollower replication = follower.getIfAvailable();
+        if (replication != null && !replication.isSynced()) {
+            return Health.outOfService().withDetail("warmUp", "loading the leader's snapshot").build();
+        }
+        return Health.up().build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.encora.victorvazquez.todo_app.replication;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import com.encora.victorvazquez.todo_app.todo.TodoService;
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicationCodec;
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicationLog;
+import com.encora.victorvazquez.todo_app.todo.repository.TenantShardedTodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoVersionConflictException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leader side of replication: followers load a snapshot, tail the mutation
+ * log and forward their writes here. Forwarded writes go through
+ * {@link TodoService}, so they are validated, counted and announced like the
+ * leader's own. Bodies use {@link ReplicationCodec}; {@link
+ * ReplicationSecretFilter} keeps out callers without the nodes' secret.
+ */
+@RestController
+@RequestMapping("/replication")
+@ConditionalOnProperty(name = "todo.replication.role", havingValue = "leader")
+public class ReplicationController {
+    private static final Duration MAX_WAIT = Duration.ofSeconds(30);
+
+    private final ReplicationLog log;
+    private final TenantShardedTodoRepository repository;
+    private final TodoService todoService;
+
+    public ReplicationController(ReplicationLog log, TenantShardedTodoRepository repository, TodoService todoService) {
+        this.log = log;
+        this.repository = repository;
+        this.todoService = todoService;
+    }
+
+    @GetMapping(path = "/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> snapshot() {
+        StreamingResponseBody body = out -> {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            log.writeSnapshot(repository, data);
+            data.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+    }
+
+    /**
+     * Entries after {@code after}, waiting up to {@code waitMillis} for the
+     * first one. Answers 410 Gone when they have been dropped from the log,
+     * or when {@code epoch} is not this log's, e.g. after a leader restart.
+     */
+    @GetMapping(path = "/log", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> entries(
+            @RequestParam long epoch,
+            @RequestParam long after,
+            @RequestParam(defaultValue = "10000") int max,
+            @RequestParam(defaultValue = "0") long waitMillis
+    ) throws IOException, InterruptedException {
+        if (epoch != log.epoch()) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        Duration wait = Duration.ofMillis(Math.max(0, Math.min(waitMillis, MAX_WAIT.toMillis())));
+        List<ReplicationLog.Entry> entries = log.entriesAfter(after, max, wait);
+        if (entries == null) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        for (ReplicationLog.Entry entry : entries) {
+            ReplicationCodec.writeEntry(entry, out);
+        }
+        return binary(buffer);
+    }
+
+    @PostMapping(path = "/todos", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> save(InputStream body) throws IOException {
+        List<Todo> saved = todoService.saveReplicated(ReplicationCodec.readTodos(new DataInputStream(body)));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeLong(log.epoch());
+        out.writeLong(log.lastSequence());
+        ReplicationCodec.writeTodos(saved, out);
+        return binary(buffer);
+    }
+
+    @PostMapping(path = "/todos/delete", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> delete(@RequestParam(required = false) String status, InputStream body) throws IOException {
+        List<TodoRecord> deleted = todoService.deleteReplicated(ReplicationCodec.readIds(new DataInputStream(body)), status);
+        List<Todo> todos = new ArrayList<>(deleted.size());
+        for (TodoRecord record : deleted) {
+            todos.add(record.toTodo());
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeLong(log.epoch());
+        out.writeLong(log.lastSequence());
+        ReplicationCodec.writeTodos(todos, out);
+        return binary(buffer);
+    }
+
+    @PostMapping("/ids")
+    public ResponseEntity<byte[]> reserveIds(@RequestParam int count) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        return longBody(repository.reserveIds(count));
+    }
+
+    @ExceptionHandler(TodoVersionConflictException.class)
+    public ResponseEntity<byte[]> handleVersionConflict(TodoVersionConflictException e) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeLong(e.getId());
+        out.writeInt(e.getExpectedVersion());
+        out.writeInt(e.getActualVersion());
+        return ResponseEntity.status(HttpStatus.CONFLICT).contentType(MediaType.APPLICATION_OCTET_STREAM).body(buffer.toByteArray());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+    }
+
+    private static ResponseEntity<byte[]> longBody(long value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new DataOutputStream(buffer).writeLong(value);
+        return binary(buffer);
+    }
+
+    private static ResponseEntity<byte[]> binary(ByteArrayOutputStream buffer) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(buffer.toByteArray());
+    }
+}
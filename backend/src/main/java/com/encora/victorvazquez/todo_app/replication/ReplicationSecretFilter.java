@@ -0,0 +1,49 @@
+package com.encora.victorvazquez.todo_app.replication;
+
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicationCodec;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Rejects {@code /replication} requests that do not carry the nodes' shared
+ * {@code todo.replication.secret} in the
+ * {@value ReplicationCodec#SECRET_HEADER} header. The snapshot holds every
+ * tenant's todos, so only other nodes may call these endpoints.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.replication.role", havingValue = "leader")
+public class ReplicationSecretFilter extends OncePerRequestFilter {
+    private final byte[] secret;
+
+    public ReplicationSecretFilter(@Value("${todo.replication.secret:}") String secret) {
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("todo.replication.secret must be set on a replication leader");
+        }
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/replication/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String presented = request.getHeader(ReplicationCodec.SECRET_HEADER);
+        if (presented == null || !MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8))) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid " + ReplicationCodec.SECRET_HEADER + " header");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,71 @@
+package com.encora.victorvazquez.todo_app.tenant;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Tenant the current thread is working for. {@link TenantFilter} sets it from
+ * the {@value #HEADER} header for the duration of a request; code running
+ * outside a request sees {@link #DEFAULT_TENANT} unless it uses
+ * {@link #run} or {@link #call}.
+ */
+public final class TenantContext {
+    public static final String HEADER = "X-Tenant-Id";
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final Pattern VALID_TENANT = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant == null ? DEFAULT_TENANT : tenant;
+    }
+
+    /**
+     * Tenant ids are also used as directory names by the persistent stores,
+     * so only letters, digits, '-' and '_' are accepted.
+     */
+    public static boolean isValid(String tenant) {
+        return tenant != null && VALID_TENANT.matcher(tenant).matches();
+    }
+
+    public static void run(String tenant, Runnable task) {
+        call(tenant, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(String tenant, Supplier<T> task) {
+        String previous = enter(tenant);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Makes {@code tenant} current and returns the previous value for
+     * {@link #restore}.
+     */
+    static String enter(String tenant) {
+        if (!isValid(tenant)) {
+            throw new IllegalArgumentException("Invalid tenant id: " + tenant);
+        }
+        String previous = CURRENT.get();
+        CURRENT.set(tenant);
+        return previous;
+    }
+
+    static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.encora.victorvazquez.todo_app.tenant;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Runs each request as the tenant named by the {@value TenantContext#HEADER}
+ * header, or {@link TenantContext#DEFAULT_TENANT} when it is absent. When
+ * {@code todo.tenants.allowed} lists tenant ids, any other one is refused.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TenantFilter extends OncePerRequestFilter {
+    private final Set<String> allowed;
+
+    /**
+     * @param allowed comma-separated tenant ids, or empty to accept any valid
+     *                one; the default tenant is always accepted
+     */
+    public TenantFilter(@Value("${todo.tenants.allowed:}") String allowed) {
+        this.allowed = Arrays.stream(allowed.split(","))
+                .map(String::trim)
+                .filter(tenant -> !tenant.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String tenant = request.getHeader(TenantContext.HEADER);
+        if (tenant == null || tenant.isEmpty()) {
+            tenant = TenantContext.DEFAULT_TENANT;
+        }
+        if (!TenantContext.isValid(tenant)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid " + TenantContext.HEADER + " header");
+            return;
+        }
+        if (!allowed.isEmpty() && !allowed.contains(tenant) && !TenantContext.DEFAULT_TENANT.equals(tenant)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Unknown tenant " + tenant);
+            return;
+        }
+        String previous = TenantContext.enter(tenant);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TenantContext.restore(previous);
+        }
+    }
+}
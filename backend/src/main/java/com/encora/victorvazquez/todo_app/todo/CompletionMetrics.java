@@ -0,0 +1,63 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running count and sum of completion times (doneDate - creationDate) per
+ * priority, so averages are exact over the whole dataset and O(1) to read.
+ */
+class CompletionMetrics {
+    private static final Todo.Priority[] PRIORITIES = Todo.Priority.values();
+    private static final double MILLIS_PER_MINUTE = 60_000.0;
+
+    private final LongAdder[] counts = new LongAdder[PRIORITIES.length];
+    private final LongAdder[] sums = new LongAdder[PRIORITIES.length];
+
+    CompletionMetrics() {
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            counts[i] = new LongAdder();
+            sums[i] = new LongAdder();
+        }
+    }
+
+    void add(Todo todo) {
+        if (todo.isDone() && todo.getDoneDate() != null && todo.getCreationDate() != null) {
+            int i = todo.getPriority().ordinal();
+            counts[i].increment();
+            sums[i].add(completionMillis(todo));
+        }
+    }
+
+    void remove(Todo todo) {
+        if (todo.isDone() && todo.getDoneDate() != null && todo.getCreationDate() != null) {
+            int i = todo.getPriority().ordinal();
+            counts[i].decrement();
+            sums[i].add(-completionMillis(todo));
+        }
+    }
+
+    TodoService.MetricsResponse snapshot() {
+        long totalCount = 0;
+        long totalSum = 0;
+        Map<Todo.Priority, Long> byPriority = new EnumMap<>(Todo.Priority.class);
+        for (Todo.Priority priority : PRIORITIES) {
+            long count = counts[priority.ordinal()].sum();
+            long sum = sums[priority.ordinal()].sum();
+            byPriority.put(priority, averageMinutes(sum, count));
+            totalCount += count;
+            totalSum += sum;
+        }
+        return new TodoService.MetricsResponse(averageMinutes(totalSum, totalCount), byPriority);
+    }
+
+    static long averageMinutes(long sumMillis, long count) {
+        return count > 0 ? Math.round(sumMillis / (double) count / MILLIS_PER_MINUTE) : 0;
+    }
+
+    static long completionMillis(Todo todo) {
+        return TodoRecord.toEpochMillis(todo.getDoneDate()) - TodoRecord.toEpochMillis(todo.getCreationDate());
+    }
+}
@@ -0,0 +1,99 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@link TodoEvent.Type#DUE_SOON} when an undone todo's due date
+ * comes within the configured window and {@link TodoEvent.Type#OVERDUE} when
+ * it passes. Every tick asks the due date index only for the slice of time
+ * elapsed since the previous tick, so the cost follows the number of todos
+ * that became due rather than the size of the store. Due dates are wall-clock
+ * times in {@link TodoRecord#ZONE}, which the index stores as real instants,
+ * so they compare with {@link System#currentTimeMillis()}. Due dates that are
+ * already past when the scheduler starts, or when a todo is saved, do not
+ * fire. A todo saved with a due date already inside the window is announced
+ * by {@link TodoService} when it is saved; one whose due date lies within a
+ * tick of the window's far end may be announced by both.
+ */
+@Component
+public class DueDateScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DueDateScheduler.class);
+
+    private final TodoRepository todoRepository;
+    private final TodoEventBus eventBus;
+    private final long soonWindowMillis;
+    private final ScheduledExecutorService scheduler;
+    private long overdueWatermark;
+    private long dueSoonWatermark;
+
+    public DueDateScheduler(
+            TodoRepository todoRepository,
+            TodoEventBus eventBus,
+            @Value("${todo.due.tick:PT1S}") Duration tick,
+            @Value("${todo.due.soon-window:PT1H}") Duration soonWindow
+    ) {
+        this.todoRepository = todoRepository;
+        this.eventBus = eventBus;
+        this.soonWindowMillis = soonWindow.toMillis();
+        long now = System.currentTimeMillis();
+        this.overdueWatermark = now;
+        this.dueSoonWatermark = now + soonWindowMillis;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "todo-due-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMillis = tick.toMillis();
+        scheduler.scheduleWithFixedDelay(this::tickQuietly, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fires events for every undone todo that became due soon or overdue
+     * since the previous tick, up to {@code nowMillis}.
+     */
+    synchronized void tick(long nowMillis) {
+        if (nowMillis <= overdueWatermark) {
+            return;
+        }
+        fire(TodoEvent.Type.OVERDUE, overdueWatermark, nowMillis);
+        overdueWatermark = nowMillis;
+        long dueSoonLimit = nowMillis + soonWindowMillis;
+        fire(TodoEvent.Type.DUE_SOON, dueSoonWatermark, dueSoonLimit);
+        dueSoonWatermark = dueSoonLimit;
+    }
+
+    private void fire(TodoEvent.Type type, long fromMillis, long toMillis) {
+        for (String tenant : todoRepository.tenants()) {
+            TenantContext.run(tenant, () -> {
+                for (TodoRecord record : todoRepository.findRecordsDue("undone", null, null, fromMillis, toMillis)) {
+                    eventBus.publish(type, record.toTodo());
+                }
+            });
+        }
+    }
+
+    private void tickQuietly() {
+        try {
+            tick(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logger.warn("Due date tick failed", e);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,68 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded LRU cache of list query results for the current repository
+ * version. Entries are only valid for the version they were computed at, so
+ * the whole cache is dropped as soon as a newer version is stored.
+ */
+class QueryCache {
+    record Key(int page, int size, String sortBy, String status, String text, Todo.Priority priority,
+               LocalDateTime dueAfter, LocalDateTime dueBefore, String cursor) {
+    }
+
+    private final int maxEntries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, TodoService.PageResponse> entries;
+    private long version = -1;
+
+    QueryCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TodoService.PageResponse> eldest) {
+                return size() > QueryCache.this.maxEntries;
+            }
+        };
+    }
+
+    TodoService.PageResponse get(Key key, long currentVersion) {
+        lock.lock();
+        try {
+            return version == currentVersion ? entries.get(key) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(Key key, long computedVersion, TodoService.PageResponse response) {
+        Objects.requireNonNull(response);
+        lock.lock();
+        try {
+            if (computedVersion < version) {
+                return;
+            }
+            if (computedVersion > version) {
+                entries.clear();
+                version = computedVersion;
+            }
+            entries.put(key, response);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.encora.victorvazquez.todo_app.todo;
 
 import java.time.LocalDateTime;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -12,6 +13,7 @@ public class Todo {
     private LocalDateTime doneDate;
     private Priority priority;
     private LocalDateTime creationDate;
+    private Integer version;
 
     public enum Priority {
         HIGH, MEDIUM, LOW
@@ -19,7 +21,6 @@ public class Todo {
 
     public Todo() {
         this.done = false;
-        this.creationDate = LocalDateTime.now();
     }
 
     @JsonCreator
@@ -32,7 +33,6 @@ public class Todo {
         this.priority = priority;
         this.dueDate = dueDate;
         this.done = false;
-        this.creationDate = LocalDateTime.now();
     }
 
     public Todo(Long id, String text, Priority priority, LocalDateTime dueDate) {
@@ -41,7 +41,17 @@ public class Todo {
         this.priority = priority;
         this.dueDate = dueDate;
         this.done = false;
-        this.creationDate = LocalDateTime.now();
+    }
+
+    public Todo(Long id, String text, Priority priority, LocalDateTime dueDate,
+                boolean done, LocalDateTime doneDate, LocalDateTime creationDate) {
+        this.id = id;
+        this.text = text;
+        this.priority = priority;
+        this.dueDate = dueDate;
+        this.done = done;
+        this.doneDate = doneDate;
+        this.creationDate = creationDate;
     }
 
     public Todo(Long id, String text, Priority priority) {
@@ -77,6 +87,10 @@ public class Todo {
         return creationDate;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     // Setters
     public void setId(Long id) {
         this.id = id;
@@ -97,7 +111,7 @@ public class Todo {
     public void setDone(boolean done) {
         this.done = done;
         if (done) {
-            this.doneDate = LocalDateTime.now();
+            this.doneDate = LocalDateTime.now(TodoRecord.ZONE);
         } else {
             this.doneDate = null;
         }
@@ -109,4 +123,13 @@ public class Todo {
         }
         this.priority = priority;
     }
+
+    /**
+     * The stored version this todo was read at. Saving a todo with a version
+     * only succeeds while the stored todo is still at that version; saving
+     * one without a version overwrites unconditionally.
+     */
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
@@ -1,18 +1,52 @@
 package com.encora.victorvazquez.todo_app.todo;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoVersionConflictException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
 @RestController
 @RequestMapping("/todos")
 public class TodoController {
     private final TodoService todoService;
+    private final TodoTransfer todoTransfer;
+    /**
+     * Versions start over when the node restarts and differ between nodes,
+     * so list ETags also carry this id, drawn when the controller starts.
+     */
+    private final String bootId = Long.toHexString(ThreadLocalRandom.current().nextLong());
     private final Logger logger = LoggerFactory.getLogger(TodoController.class);
 
     public TodoController(TodoService todoService) {
+        this(todoService, new TodoTransfer());
+    }
+
+    @Autowired
+    public TodoController(TodoService todoService, ObjectMapper objectMapper) {
+        this(todoService, new TodoTransfer(objectMapper));
+    }
+
+    private TodoController(TodoService todoService, TodoTransfer todoTransfer) {
         this.todoService = todoService;
+        this.todoTransfer = todoTransfer;
     }
 
     @GetMapping
@@ -22,11 +56,63 @@ public class TodoController {
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String text,
+            @RequestParam(required = false) Todo.Priority priority,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueAfter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueBefore,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Received GET request for todos with parameters: page={}, size={}, sortBy={}, status={}, text={}, priority={}, dueAfter={}, dueBefore={}, cursor={}",
+                        page, size, sortBy, status, text, priority, dueAfter, dueBefore, cursor);
+        }
+        // Weak, because Tomcat does not gzip responses with a strong ETag. Each
+        // tenant counts its own versions, so the tag names the tenant too.
+        String etag = "W/\"" + bootId + ":" + TenantContext.current() + ":" + Long.toHexString(todoService.getVersion()) + "\"";
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(TenantContext.HEADER)
+                    .cacheControl(CacheControl.noCache()).build();
+        }
+        TodoService.PageResponse response = cursor != null
+                ? todoService.getTodosAfter(cursor, size, sortBy, status, text, priority, dueAfter, dueBefore)
+                : todoService.getAllTodos(page, size, sortBy, status, text, priority, dueAfter, dueBefore);
+        return ResponseEntity.ok().eTag(etag).varyBy(TenantContext.HEADER).cacheControl(CacheControl.noCache()).body(response);
+    }
+
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents() {
+        return todoService.subscribeToEvents();
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTodos(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String text,
             @RequestParam(required = false) Todo.Priority priority
     ) {
-        logger.debug("Received GET request for todos with parameters: page={}, size={}, sortBy={}, status={}, text={}, priority={}", 
-                    page, size, sortBy, status, text, priority);
-        return ResponseEntity.ok(todoService.getAllTodos(page, size, sortBy, status, text, priority));
+        TodoTransfer.Format exportFormat = TodoTransfer.Format.of(format);
+        String tenant = TenantContext.current();
+        StreamingResponseBody body = out -> {
+            try (TodoTransfer.RowWriter writer = todoTransfer.writer(exportFormat, out)) {
+                TenantContext.run(tenant, () -> todoService.exportTodos(status, text, priority, writer::write));
+            }
+        };
+        return ResponseEntity.ok().contentType(exportFormat.getMediaType()).body(body);
+    }
+
+    @PostMapping(path = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<TodoService.ImportResult> importTodos(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body
+    ) throws IOException {
+        TodoTransfer.Format format = TodoTransfer.Format.of(contentType);
+        return ResponseEntity.ok(todoService.importTodos(todoTransfer.reader(format, body)));
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<TodoService.MetricsResponse> getMetrics() {
+        return ResponseEntity.ok(todoService.getMetrics());
     }
 
     @PostMapping
@@ -35,9 +121,32 @@ public class TodoController {
         return ResponseEntity.ok(todoService.createTodo(todo));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<TodoService.BatchResult>> saveTodos(@RequestBody List<Todo> todos) {
+        return ResponseEntity.ok(todoService.saveTodos(todos));
+    }
+
+    /**
+     * Updates the todo if it is still at the version named by {@code If-Match}
+     * (the {@code ETag} of an earlier response) or by the body's
+     * {@code version}, and answers 409 if it is not.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Todo> updateTodo(@PathVariable Long id, @RequestBody Todo todo) {
-        return ResponseEntity.ok(todoService.updateTodo(id, todo));
+    public ResponseEntity<Todo> updateTodo(
+            @PathVariable Long id,
+            @RequestBody Todo todo,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) {
+        Integer expectedVersion = parseIfMatch(ifMatch);
+        if (expectedVersion != null) {
+            todo.setVersion(expectedVersion);
+        }
+        Todo updated = todoService.updateTodo(id, todo);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (updated.getVersion() != null) {
+            response.eTag("\"" + updated.getVersion() + "\"");
+        }
+        return response.body(updated);
     }
 
     @PostMapping("/{id}/done")
@@ -45,6 +154,11 @@ public class TodoController {
         return ResponseEntity.ok(todoService.markAsDone(id));
     }
 
+    @PostMapping("/done")
+    public ResponseEntity<List<TodoService.BatchResult>> markAllAsDone(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(todoService.markAllAsDone(ids));
+    }
+
     @PutMapping("/{id}/undone")
     public ResponseEntity<Todo> markAsUndone(@PathVariable Long id) {
         return ResponseEntity.ok(todoService.markAsUndone(id));
@@ -55,4 +169,55 @@ public class TodoController {
         todoService.deleteTodo(id);
         return ResponseEntity.noContent().build();
     }
+
+    @DeleteMapping
+    public ResponseEntity<List<TodoService.BatchResult>> deleteTodos(@RequestParam String status) {
+        return ResponseEntity.ok(todoService.deleteTodos(status));
+    }
+
+    @ExceptionHandler(TodoVersionConflictException.class)
+    public ResponseEntity<ProblemDetail> handleVersionConflict(TodoVersionConflictException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+        problem.setProperty("currentVersion", e.getActualVersion());
+        return ResponseEntity.status(HttpStatus.CONFLICT).eTag("\"" + e.getActualVersion() + "\"").body(problem);
+    }
+
+    /**
+     * Returns the version named by an {@code If-Match} header, or
+     * {@code null} when there is none or it is {@code *}.
+     */
+    private static Integer parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Integer.valueOf(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match header: " + ifMatch);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(opaqueTag) || trimmed.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
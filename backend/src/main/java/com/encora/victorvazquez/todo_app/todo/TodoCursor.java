@@ -0,0 +1,36 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor holding the sort key (priority, due date) and id of
+ * the last todo on a page. Decoding yields a probe record that compiled sort
+ * comparators can compare against directly.
+ */
+final class TodoCursor {
+    private TodoCursor() {
+    }
+
+    static String encode(TodoRecord last) {
+        String key = last.id() + "|" + last.priority().name() + "|"
+                + (last.dueMillis() == TodoRecord.NO_DATE ? "" : Long.toString(last.dueMillis()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TodoRecord decode(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            long dueMillis = parts[2].isEmpty() ? TodoRecord.NO_DATE : Long.parseLong(parts[2]);
+            byte priority = (byte) Todo.Priority.valueOf(parts[1]).ordinal();
+            return new TodoRecord(Long.parseLong(parts[0]), "", priority, false, TodoRecord.NO_DATE, dueMillis, TodoRecord.NO_DATE, 0);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+public class TodoEvent {
+    public enum Type {
+        CREATED, UPDATED, DONE, UNDONE, DELETED, DUE_SOON, OVERDUE
+    }
+
+    private final Type type;
+    private final Long id;
+    private final Todo todo;
+
+    public TodoEvent(Type type, Long id, Todo todo) {
+        this.type = type;
+        this.id = id;
+        this.todo = todo;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Todo getTodo() {
+        return todo;
+    }
+}
@@ -0,0 +1,168 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import com.encora.victorvazquez.todo_app.config.ThreadingConfig;
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans todo change events out to Server-Sent Event subscribers. Each event is
+ * serialized once, then offered to a bounded per-subscriber buffer; a
+ * subscriber whose buffer is full is disconnected instead of slowing the
+ * publisher down, and is expected to reconnect and refetch. Subscribers only
+ * receive the events of the tenant they subscribed as.
+ */
+@Component
+public class TodoEventBus {
+    private static final Logger logger = LoggerFactory.getLogger(TodoEventBus.class);
+
+    private record Message(long id, String type, String data) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public TodoEventBus() {
+        this(JsonMapper.builder().findAndAddModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build(),
+                Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "todo-events");
+                    thread.setDaemon(true);
+                    return thread;
+                }), 256, 30 * 60 * 1000L);
+    }
+
+    @Autowired
+    public TodoEventBus(
+            ObjectMapper objectMapper,
+            @Qualifier(ThreadingConfig.TODO_TASK_EXECUTOR) Executor executor,
+            @Value("${todo.events.buffer-size:256}") int bufferSize,
+            @Value("${todo.events.timeout-millis:1800000}") long timeoutMillis
+    ) {
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, TenantContext.current());
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    public void publish(TodoEvent.Type type, Todo todo) {
+        publish(new TodoEvent(type, todo.getId(), todo));
+    }
+
+    public void publishDeleted(Long id) {
+        publish(new TodoEvent(TodoEvent.Type.DELETED, id, null));
+    }
+
+    private void publish(TodoEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize {} event for todo {}", event.getType(), event.getId(), e);
+            return;
+        }
+        Message message = new Message(sequence.incrementAndGet(), event.getType().name().toLowerCase(), data);
+        String tenant = TenantContext.current();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.tenant.equals(tenant)) {
+                subscriber.offer(message);
+            }
+        }
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final String tenant;
+        private final BlockingQueue<Message> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, String tenant) {
+            this.emitter = emitter;
+            this.tenant = tenant;
+        }
+
+        void offer(Message message) {
+            if (!buffer.offer(message)) {
+                logger.debug("Disconnecting slow todo event subscriber after {} buffered events", bufferSize);
+                disconnect();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    logger.debug("Disconnecting todo event subscriber, the task executor is saturated");
+                    disconnect();
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Message message;
+                while ((message = buffer.poll()) != null) {
+                    try {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(message.id()))
+                                .name(message.type())
+                                .data(message.data(), MediaType.APPLICATION_JSON));
+                    } catch (IOException | IllegalStateException e) {
+                        disconnect();
+                        return;
+                    }
+                }
+                draining.set(false);
+                if (buffer.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private void disconnect() {
+            if (subscribers.remove(this)) {
+                buffer.clear();
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Pre-registered meters for {@link TodoService}. Every meter is resolved once
+ * at construction, so recording on the request path is a clock read and an
+ * array lookup with no tag or meter allocation.
+ */
+class TodoInstrumentation {
+    enum Operation {
+        GET_ALL_TODOS("getAllTodos"),
+        GET_TODOS_AFTER("getTodosAfter"),
+        GET_METRICS("getMetrics"),
+        CREATE_TODO("createTodo"),
+        UPDATE_TODO("updateTodo"),
+        SAVE_TODOS("saveTodos"),
+        MARK_AS_DONE("markAsDone"),
+        MARK_ALL_AS_DONE("markAllAsDone"),
+        MARK_AS_UNDONE("markAsUndone"),
+        DELETE_TODO("deleteTodo"),
+        DELETE_TODOS("deleteTodos"),
+        EXPORT_TODOS("exportTodos"),
+        IMPORT_TODOS("importTodos");
+
+        private final String method;
+
+        Operation(String method) {
+            this.method = method;
+        }
+    }
+
+    enum Phase {
+        FILTER, SORT, PAGINATE
+    }
+
+    private static final String RESULTS_DESCRIPTION =
+            "Number of todos in a list query, by stage: matched by the filters or returned in the page";
+    private static final String CACHE_DESCRIPTION = "List queries, by whether the query cache answered them";
+
+    private final Timer[] operations = new Timer[Operation.values().length];
+    private final Timer[] phases = new Timer[Phase.values().length];
+    private final DistributionSummary filteredResults;
+    private final DistributionSummary pageResults;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    TodoInstrumentation(MeterRegistry registry, Supplier<Number> cachedQueries) {
+        for (Operation operation : Operation.values()) {
+            operations[operation.ordinal()] = Timer.builder("todo.service.operation")
+                    .description("Time spent in TodoService methods")
+                    .tag("method", operation.method)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        for (Phase phase : Phase.values()) {
+            phases[phase.ordinal()] = Timer.builder("todo.service.query.phase")
+                    .description("Time spent in each phase of a todo list query")
+                    .tag("phase", phase.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        filteredResults = DistributionSummary.builder("todo.service.query.results")
+                .description(RESULTS_DESCRIPTION)
+                .tag("stage", "filtered")
+                .register(registry);
+        pageResults = DistributionSummary.builder("todo.service.query.results")
+                .description(RESULTS_DESCRIPTION)
+                .tag("stage", "page")
+                .register(registry);
+        cacheHits = Counter.builder("todo.service.query.cache")
+                .description(CACHE_DESCRIPTION)
+                .tag("result", "hit")
+                .register(registry);
+        cacheMisses = Counter.builder("todo.service.query.cache")
+                .description(CACHE_DESCRIPTION)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("todo.service.query.cache.size", cachedQueries)
+                .description("Number of cached list query results")
+                .register(registry);
+    }
+
+    void record(Operation operation, long startNanos) {
+        operations[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the phase that started at {@code startNanos} and returns the
+     * current time so consecutive phases can be chained.
+     */
+    long recordPhase(Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        phases[phase.ordinal()].record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    void recordResults(long filtered, int page) {
+        filteredResults.record(filtered);
+        pageResults.record(page);
+    }
+}
@@ -0,0 +1,331 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import com.encora.victorvazquez.todo_app.todo.repository.TodoFacets;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hand-written serializers for {@link Todo} and
+ * {@link TodoService.PageResponse}, the bodies of nearly every response. They
+ * write the same properties in the same order as Jackson's bean serializer,
+ * but with pre-encoded property names, no reflection and a direct ISO-8601
+ * date writer.
+ *
+ * <p>Pages built from stored rows are written straight from the rows, without
+ * materializing {@link Todo} objects. In JSON each row comes from a
+ * least-recently-used cache of its encoded form keyed by the immutable
+ * {@link TodoRecord}, so a todo is encoded once until it changes or falls out
+ * of the cache. Binary formats like Smile and CBOR write
+ * field by field.
+ */
+@JsonComponent
+public class TodoJson {
+    private static final int MAX_CACHED_TODOS = 16_384;
+    private static final int CACHE_STRIPES = 16;
+    private static final int MAX_DATE_LENGTH = 29;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private static final SerializedString TEXT = new SerializedString("text");
+    private static final SerializedString PRIORITY = new SerializedString("priority");
+    private static final SerializedString DUE_DATE = new SerializedString("dueDate");
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString DONE = new SerializedString("done");
+    private static final SerializedString DONE_DATE = new SerializedString("doneDate");
+    private static final SerializedString CREATION_DATE = new SerializedString("creationDate");
+    private static final SerializedString VERSION = new SerializedString("version");
+    private static final SerializedString DATA = new SerializedString("data");
+    private static final SerializedString TOTAL_ITEMS = new SerializedString("totalItems");
+    private static final SerializedString NEXT_CURSOR = new SerializedString("nextCursor");
+    private static final SerializedString FACETS = new SerializedString("facets");
+    private static final SerializedString FACETS_DONE = new SerializedString("done");
+    private static final SerializedString FACETS_UNDONE = new SerializedString("undone");
+    private static final SerializedString[] PRIORITIES = new SerializedString[Todo.Priority.values().length];
+
+    static {
+        for (Todo.Priority priority : Todo.Priority.values()) {
+            PRIORITIES[priority.ordinal()] = new SerializedString(priority.name());
+        }
+    }
+
+    public static class TodoSerializer extends StdSerializer<Todo> {
+        public TodoSerializer() {
+            super(Todo.class);
+        }
+
+        @Override
+        public void serialize(Todo todo, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(todo);
+            gen.writeFieldName(TEXT);
+            gen.writeString(todo.getText());
+            gen.writeFieldName(PRIORITY);
+            if (todo.getPriority() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeString(PRIORITIES[todo.getPriority().ordinal()]);
+            }
+            gen.writeFieldName(DUE_DATE);
+            writeDate(todo.getDueDate(), gen, provider);
+            gen.writeFieldName(ID);
+            if (todo.getId() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(todo.getId());
+            }
+            gen.writeFieldName(DONE);
+            gen.writeBoolean(todo.isDone());
+            gen.writeFieldName(DONE_DATE);
+            writeDate(todo.getDoneDate(), gen, provider);
+            gen.writeFieldName(CREATION_DATE);
+            writeDate(todo.getCreationDate(), gen, provider);
+            gen.writeFieldName(VERSION);
+            if (todo.getVersion() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(todo.getVersion());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    public static class PageResponseSerializer extends StdSerializer<TodoService.PageResponse> {
+        private final TodoSerializer todoSerializer = new TodoSerializer();
+        private final EncodedRows encoded = new EncodedRows();
+
+        public PageResponseSerializer() {
+            super(TodoService.PageResponse.class);
+        }
+
+        @Override
+        public void serialize(TodoService.PageResponse page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(page);
+            gen.writeFieldName(DATA);
+            gen.writeStartArray();
+            if (page.records() == null) {
+                for (Todo todo : page.getData()) {
+                    todoSerializer.serialize(todo, gen, provider);
+                }
+            } else if (canWriteRaw(gen, provider)) {
+                for (TodoRecord record : page.records()) {
+                    gen.writeRawValue(encode(record, provider));
+                }
+            } else {
+                for (TodoRecord record : page.records()) {
+                    writeRecord(record, gen, provider);
+                }
+            }
+            gen.writeEndArray();
+            gen.writeFieldName(TOTAL_ITEMS);
+            gen.writeNumber(page.getTotalItems());
+            gen.writeFieldName(NEXT_CURSOR);
+            gen.writeString(page.getNextCursor());
+            gen.writeFieldName(FACETS);
+            writeFacets(page.getFacets(), gen);
+            gen.writeEndObject();
+        }
+
+        private SerializableString encode(TodoRecord record, SerializerProvider provider) throws IOException {
+            SerializableString json = encoded.get(record);
+            if (json == null) {
+                StringWriter writer = new StringWriter(256);
+                try (JsonGenerator out = FACTORY.createGenerator(writer)) {
+                    writeRecord(record, out, provider);
+                }
+                json = new SerializedString(writer.toString());
+                encoded.put(record, json);
+            }
+            return json;
+        }
+
+        /**
+         * Cached rows are compact ISO-date JSON, so they can only be copied
+         * into a plain, unindented JSON document.
+         */
+        private static boolean canWriteRaw(JsonGenerator gen, SerializerProvider provider) {
+            return gen instanceof JsonGeneratorImpl
+                    && gen.getPrettyPrinter() == null
+                    && !provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        }
+    }
+
+    /**
+     * Encoded rows in stripes of access-ordered maps, each evicting its least
+     * recently used row, so concurrent pages rarely wait on the same lock.
+     */
+    private static final class EncodedRows {
+        private final ReentrantLock[] locks = new ReentrantLock[CACHE_STRIPES];
+        private final LinkedHashMap<TodoRecord, SerializableString>[] stripes = newStripes();
+
+        EncodedRows() {
+            for (int i = 0; i < CACHE_STRIPES; i++) {
+                locks[i] = new ReentrantLock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static LinkedHashMap<TodoRecord, SerializableString>[] newStripes() {
+            LinkedHashMap<TodoRecord, SerializableString>[] stripes = new LinkedHashMap[CACHE_STRIPES];
+            for (int i = 0; i < CACHE_STRIPES; i++) {
+                stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<TodoRecord, SerializableString> eldest) {
+                        return size() > MAX_CACHED_TODOS / CACHE_STRIPES;
+                    }
+                };
+            }
+            return stripes;
+        }
+
+        SerializableString get(TodoRecord record) {
+            int stripe = stripe(record);
+            locks[stripe].lock();
+            try {
+                return stripes[stripe].get(record);
+            } finally {
+                locks[stripe].unlock();
+            }
+        }
+
+        void put(TodoRecord record, SerializableString json) {
+            int stripe = stripe(record);
+            locks[stripe].lock();
+            try {
+                stripes[stripe].put(record, json);
+            } finally {
+                locks[stripe].unlock();
+            }
+        }
+
+        private static int stripe(TodoRecord record) {
+            return (int) (record.id() & (CACHE_STRIPES - 1));
+        }
+    }
+
+    private static void writeFacets(TodoFacets facets, JsonGenerator gen) throws IOException {
+        if (facets == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        for (boolean done : new boolean[] {true, false}) {
+            gen.writeFieldName(done ? FACETS_DONE : FACETS_UNDONE);
+            gen.writeStartObject();
+            for (Todo.Priority priority : Todo.Priority.values()) {
+                gen.writeFieldName(PRIORITIES[priority.ordinal()]);
+                gen.writeNumber(facets.count(done, priority));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeRecord(TodoRecord record, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(TEXT);
+        gen.writeString(record.text());
+        gen.writeFieldName(PRIORITY);
+        gen.writeString(PRIORITIES[record.priorityOrdinal()]);
+        gen.writeFieldName(DUE_DATE);
+        writeDate(record.dueMillis(), gen, provider);
+        gen.writeFieldName(ID);
+        gen.writeNumber(record.id());
+        gen.writeFieldName(DONE);
+        gen.writeBoolean(record.done());
+        gen.writeFieldName(DONE_DATE);
+        writeDate(record.doneMillis(), gen, provider);
+        gen.writeFieldName(CREATION_DATE);
+        writeDate(record.creationMillis(), gen, provider);
+        gen.writeFieldName(VERSION);
+        gen.writeNumber(record.version());
+        gen.writeEndObject();
+    }
+
+    private static void writeDate(LocalDateTime date, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (date == null) {
+            gen.writeNull();
+        } else if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(date, gen);
+        } else {
+            writeIsoDate(gen, date.getYear(), date.getMonthValue(), date.getDayOfMonth(),
+                    date.getHour(), date.getMinute(), date.getSecond(), date.getNano());
+        }
+    }
+
+    private static void writeDate(long epochMillis, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (epochMillis == TodoRecord.NO_DATE) {
+            gen.writeNull();
+        } else if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(TodoRecord.fromEpochMillis(epochMillis), gen);
+        } else {
+            long localMillis = TodoRecord.toLocalMillis(epochMillis);
+            LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(localMillis, MILLIS_PER_DAY));
+            int millisOfDay = (int) Math.floorMod(localMillis, MILLIS_PER_DAY);
+            writeIsoDate(gen, date.getYear(), date.getMonthValue(), date.getDayOfMonth(),
+                    millisOfDay / 3_600_000, millisOfDay / 60_000 % 60, millisOfDay / 1000 % 60,
+                    millisOfDay % 1000 * 1_000_000);
+        }
+    }
+
+    /**
+     * Writes the date like {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}, the
+     * format of Jackson's own {@code LocalDateTime} serializer: seconds are
+     * always present and the fraction is left out when zero and has no
+     * trailing zeros otherwise.
+     */
+    private static void writeIsoDate(JsonGenerator gen, int year, int month, int day, int hour, int minute, int second,
+                                     int nanos) throws IOException {
+        if (year < 0 || year > 9999) {
+            gen.writeString(LocalDateTime.of(year, month, day, hour, minute, second, nanos)
+                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return;
+        }
+        char[] out = new char[MAX_DATE_LENGTH];
+        digits(out, 0, year, 4);
+        out[4] = '-';
+        digits(out, 5, month, 2);
+        out[7] = '-';
+        digits(out, 8, day, 2);
+        out[10] = 'T';
+        digits(out, 11, hour, 2);
+        out[13] = ':';
+        digits(out, 14, minute, 2);
+        out[16] = ':';
+        digits(out, 17, second, 2);
+        int length = 19;
+        if (nanos != 0) {
+            out[length++] = '.';
+            int fraction = nanos;
+            int fractionDigits = 9;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                fractionDigits--;
+            }
+            digits(out, length, fraction, fractionDigits);
+            length += fractionDigits;
+        }
+        gen.writeString(out, 0, length);
+    }
+
+    private static void digits(char[] out, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
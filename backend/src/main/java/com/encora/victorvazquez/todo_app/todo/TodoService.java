@@ -1,39 +1,294 @@
 package com.encora.victorvazquez.todo_app.todo;
 
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicaChangeListener;
+import com.encora.victorvazquez.todo_app.todo.repository.ReplicationFollower;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoFacets;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
 import com.encora.victorvazquez.todo_app.todo.repository.TodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoVersionConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class TodoService {
     private final TodoRepository todoRepository;
-    private static final Map<Todo.Priority, Integer> PRIORITY_VALUES = Map.of(
-        Todo.Priority.HIGH, 3,
-        Todo.Priority.MEDIUM, 2,
-        Todo.Priority.LOW, 1
-    );
+    private static final int MAX_CACHED_COMPARATORS = 64;
+    private static final int QUERY_CACHE_SIZE = 512;
+    private static final int EXPORT_CHUNK = 1000;
+    private static final int IMPORT_BATCH = 1000;
+    private static final int MAX_IMPORT_ERRORS = 100;
+    private static final int MAX_WRITE_ATTEMPTS = 8;
+    private static final Comparator<TodoRecord> BY_ID = Comparator.comparingLong(TodoRecord::id);
+    private final Map<String, Optional<Comparator<TodoRecord>>> comparators = new ConcurrentHashMap<>();
+
+    private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+    private final TenantState noTodos = new TenantState(List.of());
+    private final TodoInstrumentation instrumentation;
+    private final TodoEventBus eventBus;
+    private final boolean replicated;
+    private final long dueSoonWindowMillis;
 
     public TodoService(TodoRepository todoRepository) {
+        this(todoRepository, new SimpleMeterRegistry(), new TodoEventBus());
+    }
+
+    public TodoService(TodoRepository todoRepository, MeterRegistry meterRegistry, TodoEventBus eventBus) {
+        this(todoRepository, meterRegistry, eventBus, (ReplicationFollower) null, Duration.ofHours(1));
+    }
+
+    @Autowired
+    public TodoService(TodoRepository todoRepository, MeterRegistry meterRegistry, TodoEventBus eventBus,
+                       ObjectProvider<ReplicationFollower> replicationFollower,
+                       @Value("${todo.due.soon-window:PT1H}") Duration dueSoonWindow) {
+        this(todoRepository, meterRegistry, eventBus, replicationFollower.getIfAvailable(), dueSoonWindow);
+    }
+
+    /**
+     * On a follower node every write, whichever node made it, reaches the
+     * replicas through the leader's log, so the metrics and events follow
+     * the changes {@code replicationFollower} replays instead of this node's
+     * own writes.
+     */
+    private TodoService(TodoRepository todoRepository, MeterRegistry meterRegistry, TodoEventBus eventBus,
+                        ReplicationFollower replicationFollower, Duration dueSoonWindow) {
         this.todoRepository = todoRepository;
+        this.eventBus = eventBus;
+        this.dueSoonWindowMillis = dueSoonWindow.toMillis();
+        this.instrumentation = new TodoInstrumentation(meterRegistry, this::cachedQueryCount);
+        this.replicated = replicationFollower != null;
+        if (replicationFollower != null) {
+            replicationFollower.setChangeListener(new ReplicaChanges());
+        }
+    }
+
+    /**
+     * Completion metrics and cached pages of one tenant. Public methods look
+     * it up before they write, so the metrics are seeded from the tenant's
+     * done todos exactly once and then follow its changes.
+     */
+    private final class TenantState {
+        private final CompletionMetrics completionMetrics = new CompletionMetrics();
+        private final QueryCache queryCache = new QueryCache(QUERY_CACHE_SIZE);
+
+        private TenantState(List<Todo> doneTodos) {
+            for (Todo todo : doneTodos) {
+                completionMetrics.add(todo);
+            }
+        }
+    }
+
+    private TenantState tenant() {
+        return tenants.computeIfAbsent(TenantContext.current(),
+                tenant -> new TenantState(todoRepository.findAll("done", null, null)));
+    }
+
+    /**
+     * The state to read from. Tenants the repository holds no todos for share
+     * an empty one, so reads with made-up tenant ids keep nothing around.
+     */
+    private TenantState readTenant() {
+        String tenant = TenantContext.current();
+        TenantState state = tenants.get(tenant);
+        if (state == null && !todoRepository.tenants().contains(tenant)) {
+            return noTodos;
+        }
+        return state != null ? state : tenant();
+    }
+
+    private final class ReplicaChanges implements ReplicaChangeListener {
+        @Override
+        public void beforeChange(String tenant, Todo previous, Todo current) {
+            // Seeding the tenant's metrics now reads the replica without this change.
+            TenantContext.run(tenant, () -> {
+                CompletionMetrics completionMetrics = tenant().completionMetrics;
+                if (previous != null) {
+                    completionMetrics.remove(previous);
+                }
+                if (current != null) {
+                    completionMetrics.add(current);
+                }
+            });
+        }
+
+        @Override
+        public void afterChange(String tenant, Todo previous, Todo current) {
+            TenantContext.run(tenant, () -> {
+                if (current == null) {
+                    eventBus.publishDeleted(previous.getId());
+                } else {
+                    eventBus.publish(changeType(previous, current), current);
+                    announceDueSoon(previous, current);
+                }
+            });
+        }
+
+        @Override
+        public void onReplaced(String tenant) {
+            tenants.remove(tenant);
+        }
+    }
+
+    private int cachedQueryCount() {
+        int count = 0;
+        for (TenantState state : tenants.values()) {
+            count += state.queryCache.size();
+        }
+        return count;
     }
 
     public static class PageResponse {
-        private final List<Todo> data;
+        private final List<TodoRecord> records;
+        private volatile List<Todo> data;
         private final long totalItems;
+        private final String nextCursor;
+        private final TodoFacets facets;
 
         public PageResponse(List<Todo> data, long totalItems) {
+            this(data, totalItems, null);
+        }
+
+        public PageResponse(List<Todo> data, long totalItems, String nextCursor) {
+            this(null, data, totalItems, nextCursor, null);
+        }
+
+        private PageResponse(List<TodoRecord> records, List<Todo> data, long totalItems, String nextCursor, TodoFacets facets) {
+            this.records = records;
             this.data = data;
             this.totalItems = totalItems;
+            this.nextCursor = nextCursor;
+            this.facets = facets;
+        }
+
+        /**
+         * A page of stored rows. {@link TodoJson} writes them directly;
+         * {@link #getData()} only materializes todos when asked.
+         */
+        static PageResponse ofRecords(List<TodoRecord> records, long totalItems, String nextCursor, TodoFacets facets) {
+            return new PageResponse(List.copyOf(records), null, totalItems, nextCursor, facets);
         }
 
         public List<Todo> getData() {
-            return data;
+            List<Todo> todos = data;
+            if (todos == null) {
+                todos = materialize(records);
+                data = todos;
+            }
+            return todos;
+        }
+
+        List<TodoRecord> records() {
+            return records;
         }
 
         public long getTotalItems() {
             return totalItems;
         }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        /**
+         * Counts per status and priority of the todos matching the text and
+         * due date filters, ignoring the status and priority filters.
+         */
+        public TodoFacets getFacets() {
+            return facets;
+        }
+    }
+
+    public static class MetricsResponse {
+        private final long averageTime;
+        private final Map<Todo.Priority, Long> byPriority;
+
+        public MetricsResponse(long averageTime, Map<Todo.Priority, Long> byPriority) {
+            this.averageTime = averageTime;
+            this.byPriority = byPriority;
+        }
+
+        public long getAverageTime() {
+            return averageTime;
+        }
+
+        public Map<Todo.Priority, Long> getByPriority() {
+            return byPriority;
+        }
+    }
+
+    public static class BatchResult {
+        private final Long id;
+        private final boolean success;
+        private final Todo todo;
+        private final String error;
+
+        private BatchResult(Long id, boolean success, Todo todo, String error) {
+            this.id = id;
+            this.success = success;
+            this.todo = todo;
+            this.error = error;
+        }
+
+        public static BatchResult success(Todo todo) {
+            return new BatchResult(todo.getId(), true, todo, null);
+        }
+
+        public static BatchResult failure(Long id, String error) {
+            return new BatchResult(id, false, null, error);
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public Todo getTodo() {
+            return todo;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    public static class ImportResult {
+        private final long imported;
+        private final long rejected;
+        private final List<String> errors;
+
+        public ImportResult(long imported, long rejected, List<String> errors) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.errors = errors;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
     }
 
     private static class SortCriteria {
@@ -63,58 +318,607 @@ public class TodoService {
             .collect(Collectors.toList());
     }
 
+    private Optional<Comparator<TodoRecord>> compileComparator(String sortBy) {
+        Comparator<TodoRecord> comparator = null;
+        for (SortCriteria criteria : parseSortBy(sortBy)) {
+            Comparator<TodoRecord> next = switch (criteria.field) {
+                case "priority" -> criteria.ascending
+                        ? (t1, t2) -> Integer.compare(t2.priorityOrdinal(), t1.priorityOrdinal())
+                        : (t1, t2) -> Integer.compare(t1.priorityOrdinal(), t2.priorityOrdinal());
+                case "duedate" -> criteria.ascending
+                        ? (t1, t2) -> Long.compare(dueDateKey(t1), dueDateKey(t2))
+                        : (t1, t2) -> Long.compare(dueDateKey(t2), dueDateKey(t1));
+                default -> null;
+            };
+            if (next != null) {
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+        }
+        if (comparator == null) {
+            return Optional.empty();
+        }
+        return Optional.of(comparator.thenComparingLong(TodoRecord::id));
+    }
+
+    /**
+     * Sorts todos without a due date after every dated one in ascending order
+     * and before them in descending order.
+     */
+    private static long dueDateKey(TodoRecord todo) {
+        return todo.dueMillis() == TodoRecord.NO_DATE ? Long.MAX_VALUE : todo.dueMillis();
+    }
+
+    private Optional<Comparator<TodoRecord>> comparatorFor(String sortBy) {
+        if (sortBy == null || sortBy.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<Comparator<TodoRecord>> cached = comparators.get(sortBy);
+        if (cached != null) {
+            return cached;
+        }
+        Optional<Comparator<TodoRecord>> compiled = compileComparator(sortBy);
+        if (comparators.size() < MAX_CACHED_COMPARATORS) {
+            comparators.putIfAbsent(sortBy, compiled);
+        }
+        return compiled;
+    }
+
+    private static List<TodoRecord> topK(List<TodoRecord> todos, Comparator<TodoRecord> comparator, int k) {
+        if (k >= todos.size()) {
+            List<TodoRecord> sorted = new ArrayList<>(todos);
+            sorted.sort(comparator);
+            return sorted;
+        }
+        PriorityQueue<TodoRecord> heap = new PriorityQueue<>(k + 1, comparator.reversed());
+        for (TodoRecord todo : todos) {
+            if (heap.size() < k) {
+                heap.add(todo);
+            } else if (comparator.compare(todo, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(todo);
+            }
+        }
+        List<TodoRecord> result = new ArrayList<>(heap);
+        result.sort(comparator);
+        return result;
+    }
+
+    public long getVersion() {
+        return todoRepository.version();
+    }
+
     public PageResponse getAllTodos(int page, int size, String sortBy, String status, String text, Todo.Priority priority) {
-        List<Todo> allFilteredTodos = todoRepository.findAll(status, text, priority);
-        long totalItems = allFilteredTodos.size();
-
-        List<SortCriteria> sortCriteria = parseSortBy(sortBy);
-
-        List<Todo> paginatedTodos = allFilteredTodos.stream()
-            .sorted((t1, t2) -> {
-                for (SortCriteria criteria : sortCriteria) {
-                    int comparison = switch (criteria.field) {
-                        case "priority" -> {
-                            int value1 = PRIORITY_VALUES.get(t1.getPriority());
-                            int value2 = PRIORITY_VALUES.get(t2.getPriority());
-                            int result = Integer.compare(value1, value2);
-                            yield criteria.ascending ? result : -result;
-                        }
-                        case "duedate" -> {
-                            if (t1.getDueDate() == null && t2.getDueDate() == null) yield 0;
-                            if (t1.getDueDate() == null) yield criteria.ascending ? 1 : -1;
-                            if (t2.getDueDate() == null) yield criteria.ascending ? -1 : 1;
-                            int result = t1.getDueDate().compareTo(t2.getDueDate());
-                            yield criteria.ascending ? result : -result;
-                        }
-                        default -> 0;
-                    };
-                    if (comparison != 0) {
-                        return comparison;
-                    }
+        return getAllTodos(page, size, sortBy, status, text, priority, null, null);
+    }
+
+    public PageResponse getAllTodos(int page, int size, String sortBy, String status, String text, Todo.Priority priority,
+                                    LocalDateTime dueAfter, LocalDateTime dueBefore) {
+        long start = System.nanoTime();
+        try {
+            if (page < 0 || size < 0) {
+                throw new IllegalArgumentException("Page and size must not be negative");
+            }
+            QueryCache.Key key = new QueryCache.Key(page, size, sortBy, status, text, priority, dueAfter, dueBefore, null);
+            return cached(key, () -> queryPage(page, size, sortBy, status, text, priority, dueAfter, dueBefore));
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.GET_ALL_TODOS, start);
+        }
+    }
+
+    /**
+     * Matching records in id order. A due date bound is answered from the
+     * repository's due date index instead of filtering every todo.
+     */
+    private List<TodoRecord> findRecords(String status, String text, Todo.Priority priority,
+                                         LocalDateTime dueAfter, LocalDateTime dueBefore) {
+        if (dueAfter == null && dueBefore == null) {
+            return todoRepository.findRecords(status, text, priority);
+        }
+        return todoRepository.findRecordsDue(status, text, priority,
+                dueAfter == null ? Long.MIN_VALUE : TodoRecord.toEpochMillis(dueAfter),
+                dueBefore == null ? Long.MAX_VALUE : TodoRecord.toEpochMillis(dueBefore));
+    }
+
+    /**
+     * Matching records in id order and the facets of the todos matching the
+     * text and due date filters, from a single pass over the candidates.
+     * Without those filters the facets come from the repository's counters.
+     */
+    private List<TodoRecord> findRecords(String status, String text, Todo.Priority priority,
+                                         LocalDateTime dueAfter, LocalDateTime dueBefore, TodoFacets facets) {
+        if (dueAfter == null && dueBefore == null) {
+            return todoRepository.findRecords(status, text, priority, facets);
+        }
+        Boolean done = status == null ? null : status.equals("done");
+        List<TodoRecord> result = new ArrayList<>();
+        for (TodoRecord record : findRecords(null, text, null, dueAfter, dueBefore)) {
+            facets.add(record);
+            if ((done == null || record.done() == done) && (priority == null || record.priority() == priority)) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    private PageResponse queryPage(int page, int size, String sortBy, String status, String text, Todo.Priority priority,
+                                   LocalDateTime dueAfter, LocalDateTime dueBefore) {
+        long phaseStart = System.nanoTime();
+        Optional<Comparator<TodoRecord>> comparator = comparatorFor(sortBy);
+        long from = (long) page * size;
+        TodoFacets facets;
+        List<TodoRecord> allFilteredTodos;
+        long totalItems;
+        if (comparator.isEmpty() && text == null && dueAfter == null && dueBefore == null) {
+            // Counters give the total, so an id-ordered page only reads the ids up to its end.
+            facets = todoRepository.facets();
+            totalItems = facets.total(status, priority);
+            allFilteredTodos = from + size > Integer.MAX_VALUE || from >= totalItems
+                    ? Collections.emptyList()
+                    : todoRepository.findRecordsAfter(status, null, priority, null, (int) (from + size));
+        } else {
+            facets = new TodoFacets();
+            allFilteredTodos = findRecords(status, text, priority, dueAfter, dueBefore, facets);
+            totalItems = allFilteredTodos.size();
+        }
+        phaseStart = instrumentation.recordPhase(TodoInstrumentation.Phase.FILTER, phaseStart);
+
+        int to = (int) Math.min(from + size, allFilteredTodos.size());
+        if (size == 0 || from >= to) {
+            instrumentation.recordResults(totalItems, 0);
+            return PageResponse.ofRecords(Collections.emptyList(), totalItems, null, facets);
+        }
+
+        List<TodoRecord> ordered = comparator.isPresent()
+                ? topK(allFilteredTodos, comparator.get(), to)
+                : allFilteredTodos;
+        phaseStart = instrumentation.recordPhase(TodoInstrumentation.Phase.SORT, phaseStart);
+
+        List<TodoRecord> pageTodos = ordered.subList((int) from, to);
+        String nextCursor = to < totalItems ? TodoCursor.encode(ordered.get(to - 1)) : null;
+        PageResponse response = PageResponse.ofRecords(pageTodos, totalItems, nextCursor, facets);
+        instrumentation.recordPhase(TodoInstrumentation.Phase.PAGINATE, phaseStart);
+        instrumentation.recordResults(totalItems, pageTodos.size());
+        return response;
+    }
+
+    private PageResponse cached(QueryCache.Key key, Supplier<PageResponse> query) {
+        TenantState state = readTenant();
+        QueryCache queryCache = state.queryCache;
+        long version = todoRepository.version();
+        PageResponse cached = queryCache.get(key, version);
+        if (cached != null) {
+            instrumentation.recordCacheHit();
+            return cached;
+        }
+        instrumentation.recordCacheMiss();
+        PageResponse response = query.get();
+        // The shared empty state's versions belong to no tenant in particular.
+        if (state != noTodos && todoRepository.version() == version) {
+            queryCache.put(key, version, response);
+        }
+        return response;
+    }
+
+    public PageResponse getTodosAfter(String cursor, int size, String sortBy, String status, String text, Todo.Priority priority) {
+        return getTodosAfter(cursor, size, sortBy, status, text, priority, null, null);
+    }
+
+    public PageResponse getTodosAfter(String cursor, int size, String sortBy, String status, String text, Todo.Priority priority,
+                                      LocalDateTime dueAfter, LocalDateTime dueBefore) {
+        long start = System.nanoTime();
+        try {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Size must be positive");
+            }
+            QueryCache.Key key = new QueryCache.Key(0, size, sortBy, status, text, priority, dueAfter, dueBefore, cursor);
+            return cached(key, () -> queryPageAfter(cursor, size, sortBy, status, text, priority, dueAfter, dueBefore));
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.GET_TODOS_AFTER, start);
+        }
+    }
+
+    private PageResponse queryPageAfter(String cursor, int size, String sortBy, String status, String text, Todo.Priority priority,
+                                        LocalDateTime dueAfter, LocalDateTime dueBefore) {
+        TodoRecord after = TodoCursor.decode(cursor);
+        Optional<Comparator<TodoRecord>> comparator = comparatorFor(sortBy);
+        boolean dueFiltered = dueAfter != null || dueBefore != null;
+
+        List<TodoRecord> candidates;
+        long totalItems;
+        TodoFacets facets;
+        if (comparator.isPresent() || dueFiltered || text != null) {
+            Comparator<TodoRecord> order = comparator.orElse(BY_ID);
+            facets = new TodoFacets();
+            List<TodoRecord> allFilteredTodos = findRecords(status, text, priority, dueAfter, dueBefore, facets);
+            totalItems = allFilteredTodos.size();
+            List<TodoRecord> remaining = new ArrayList<>();
+            for (TodoRecord todo : allFilteredTodos) {
+                if (order.compare(todo, after) > 0) {
+                    remaining.add(todo);
                 }
-                return 0;
-            })
-            .skip((long) page * size)
-            .limit(size)
-            .collect(Collectors.toList());
+            }
+            candidates = topK(remaining, order, size + 1);
+        } else {
+            candidates = todoRepository.findRecordsAfter(status, null, priority, after.id(), size + 1);
+            facets = todoRepository.facets();
+            totalItems = facets.total(status, priority);
+        }
+
+        if (candidates.size() <= size) {
+            return PageResponse.ofRecords(candidates, totalItems, null, facets);
+        }
+        return PageResponse.ofRecords(candidates.subList(0, size), totalItems, TodoCursor.encode(candidates.get(size - 1)), facets);
+    }
 
-        return new PageResponse(paginatedTodos, totalItems);
+    private static List<Todo> materialize(List<TodoRecord> records) {
+        List<Todo> todos = new ArrayList<>(records.size());
+        for (TodoRecord record : records) {
+            todos.add(record.toTodo());
+        }
+        return todos;
+    }
+
+    public SseEmitter subscribeToEvents() {
+        return eventBus.subscribe();
+    }
+
+    public MetricsResponse getMetrics() {
+        long start = System.nanoTime();
+        try {
+            return readTenant().completionMetrics.snapshot();
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.GET_METRICS, start);
+        }
     }
 
     public Todo createTodo(Todo todo) {
+        long start = System.nanoTime();
+        try {
+            CompletionMetrics completionMetrics = tenant().completionMetrics;
+            validateNewTodo(todo);
+            Todo saved = todoRepository.save(todo);
+            recordSaved(completionMetrics, null, saved, TodoEvent.Type.CREATED);
+            return saved;
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.CREATE_TODO, start);
+        }
+    }
+
+    /**
+     * Applies {@code updatedTodo} to the stored todo. When it carries a
+     * version, the update only goes through while the stored todo is still
+     * at that version and fails with a {@link TodoVersionConflictException}
+     * otherwise.
+     */
+    public Todo updateTodo(Long id, Todo updatedTodo) {
+        long start = System.nanoTime();
+        try {
+            CompletionMetrics completionMetrics = tenant().completionMetrics;
+            Change change = modify(id, updatedTodo.getVersion(), todo -> {
+                applyUpdate(todo, updatedTodo);
+                return true;
+            });
+            recordSaved(completionMetrics, change.previous(), change.saved(), TodoEvent.Type.UPDATED);
+            return change.saved();
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.UPDATE_TODO, start);
+        }
+    }
+
+    public List<BatchResult> saveTodos(List<Todo> todos) {
+        long start = System.nanoTime();
+        try {
+            CompletionMetrics completionMetrics = tenant().completionMetrics;
+            BatchResult[] results = new BatchResult[todos.size()];
+            List<Todo> toSave = new ArrayList<>(todos.size());
+            List<Integer> positions = new ArrayList<>(todos.size());
+            Todo[] previous = new Todo[todos.size()];
+            for (int i = 0; i < todos.size(); i++) {
+                Todo todo = todos.get(i);
+                try {
+                    if (todo.getId() == null) {
+                        validateNewTodo(todo);
+                        toSave.add(todo);
+                    } else {
+                        Todo existing = todoRepository.findById(todo.getId())
+                                .orElseThrow(() -> new IllegalArgumentException("Todo not found with id: " + todo.getId()));
+                        checkVersion(existing, todo.getVersion());
+                        Todo updated = copyOf(existing);
+                        applyUpdate(updated, todo);
+                        previous[i] = existing;
+                        toSave.add(updated);
+                    }
+                    positions.add(i);
+                } catch (IllegalArgumentException | TodoVersionConflictException e) {
+                    results[i] = BatchResult.failure(todo.getId(), e.getMessage());
+                }
+            }
+            List<Todo> saved = saveAllReportingConflicts(toSave, positions, Arrays.asList(results));
+            for (int i = 0; i < saved.size(); i++) {
+                int position = positions.get(i);
+                recordSaved(completionMetrics, previous[position], saved.get(i),
+                        previous[position] == null ? TodoEvent.Type.CREATED : TodoEvent.Type.UPDATED);
+                results[position] = BatchResult.success(saved.get(i));
+            }
+            return Arrays.asList(results);
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.SAVE_TODOS, start);
+        }
+    }
+
+    public List<BatchResult> markAllAsDone(List<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            CompletionMetrics completionMetrics = tenant().completionMetrics;
+            // Each read returns a fresh copy, so a repeated id would be saved,
+            // counted and announced once per occurrence.
+            Set<Long> distinctIds = new LinkedHashSet<>(ids);
+            List<BatchResult> results = new ArrayList<>(distinctIds.size());
+            List<Todo> toSave = new ArrayList<>(distinctIds.size());
+            List<Integer> positions = new ArrayList<>(distinctIds.size());
+            for (Long id : distinctIds) {
+                Optional<Todo> found = todoRepository.findById(id);
+                if (found.isEmpty()) {
+                    results.add(BatchResult.failure(id, "Todo not found with id: " + id));
+                    continue;
+                }
+                Todo todo = found.get();
+                if (!todo.isDone()) {
+                    todo.setDone(true);
+                    positions.add(results.size());
+                    toSave.add(todo);
+                }
+                results.add(BatchResult.success(todo));
+            }
+            List<Todo> saved = saveAllReportingConflicts(toSave, positions, results);
+            for (int i = 0; i < saved.size(); i++) {
+                recordSaved(completionMetrics, null, saved.get(i), TodoEvent.Type.DONE);
+                results.set(positions.get(i), BatchResult.success(saved.get(i)));
+            }
+            return results;
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.MARK_ALL_AS_DONE, start);
+        }
+    }
+
+    public List<BatchResult> deleteTodos(String status) {
+        long start = System.nanoTime();
+        try {
+            CompletionMetrics completionMetrics = tenant().completionMetrics;
+            if (!"done".equals(status) && !"undone".equals(status)) {
+                throw new IllegalArgumentException("Status must be 'done' or 'undone'");
+            }
+            List<TodoRecord> matching = todoRepository.findRecords(status, null, null);
+            List<Long> ids = new ArrayList<>(matching.size());
+            for (TodoRecord record : matching) {
+                ids.add(record.id());
+            }
+            // A todo toggled since it was read keeps its new status and stays.
+            List<TodoRecord> deleted = todoRepository.deleteAllById(ids, status);
+            List<BatchResult> results = new ArrayList<>(deleted.size());
+            for (TodoRecord record : deleted) {
+                Todo todo = record.toTodo();
+                recordDeleted(completionMetrics, todo);
+                results.add(BatchResult.success(todo));
+            }
+            return results;
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.DELETE_TODOS, start);
+        }
+    }
+
+    /**
+     * Passes every matching todo to {@code sink} in id order, reading the
+     * repository in fixed-size chunks instead of materializing the whole
+     * result.
+     */
+    public void exportTodos(String status, String text, Todo.Priority priority, Consumer<Todo> sink) {
+        long start = System.nanoTime();
+        try {
+            Long afterId = null;
+            List<TodoRecord> chunk;
+            do {
+                chunk = todoRepository.findRecordsAfter(status, text, priority, afterId, EXPORT_CHUNK);
+                for (TodoRecord record : chunk) {
+                    sink.accept(record.toTodo());
+                }
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1).id();
+                }
+            } while (chunk.size() == EXPORT_CHUNK);
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.EXPORT_TODOS, start);
+        }
+    }
+
+    /**
+     * Inserts the todos from {@code todos} as new todos, in batches that each
+     * reserve one range of ids. Invalid rows are skipped and reported; the
+     * import stops after {@value #MAX_IMPORT_ERRORS} of them.
+     */
+    public ImportResult importTodos(Iterator<Todo> todos) {
+        long start = System.nanoTime();
+        try {
+            long imported = 0;
+            long rejected = 0;
+            List<String> errors = new ArrayList<>();
+            List<Todo> batch = new ArrayList<>(IMPORT_BATCH);
+            for (long row = 1; errors.size() < MAX_IMPORT_ERRORS; row++) {
+                try {
+                    if (!todos.hasNext()) {
+                        break;
+                    }
+                } catch (IllegalArgumentException e) {
+                    // The reader cannot find the next row, so stop here but
+                    // keep the rows read so far.
+                    rejected++;
+                    errors.add("Row " + row + ": " + e.getMessage());
+                    break;
+                }
+                try {
+                    Todo todo = todos.next();
+                    validateNewTodo(todo);
+                    batch.add(todo);
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                    errors.add("Row " + row + ": " + e.getMessage());
+                }
+                if (batch.size() == IMPORT_BATCH) {
+                    imported += insertBatch(batch);
+                }
+            }
+            imported += insertBatch(batch);
+            return new ImportResult(imported, rejected, errors);
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.IMPORT_TODOS, start);
+        }
+    }
+
+    /**
+     * Saves {@code toSave} in one batch. A todo that conflicts with its stored
+     * version fails on its own: its result, at the matching entry of
+     * {@code positions}, becomes the conflict, it is dropped from both lists
+     * and the others are saved without it.
+     */
+    private List<Todo> saveAllReportingConflicts(List<Todo> toSave, List<Integer> positions, List<BatchResult> results) {
+        while (true) {
+            try {
+                return todoRepository.saveAll(toSave);
+            } catch (TodoVersionConflictException e) {
+                int conflicting = -1;
+                for (int i = 0; i < toSave.size() && conflicting == -1; i++) {
+                    if (toSave.get(i).getId() != null && toSave.get(i).getId() == e.getId()) {
+                        conflicting = i;
+                    }
+                }
+                if (conflicting == -1) {
+                    throw e;
+                }
+                results.set(positions.get(conflicting), BatchResult.failure(e.getId(), e.getMessage()));
+                toSave.remove(conflicting);
+                positions.remove(conflicting);
+            }
+        }
+    }
+
+    /**
+     * Saves todos a follower node forwarded, as they are after the follower's
+     * change, and counts and announces them like this node's own writes. Each
+     * one must still be at the version the follower read it at.
+     */
+    public List<Todo> saveReplicated(List<Todo> todos) {
+        CompletionMetrics completionMetrics = tenant().completionMetrics;
+        List<Todo> previous = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            validateNewTodo(todo);
+            Todo existing = todoRepository.findById(todo.getId()).orElse(null);
+            if (existing != null) {
+                checkVersion(existing, todo.getVersion());
+            }
+            previous.add(existing);
+        }
+        List<Todo> saved = todoRepository.saveAll(todos);
+        for (int i = 0; i < saved.size(); i++) {
+            recordSaved(completionMetrics, previous.get(i), saved.get(i), changeType(previous.get(i), saved.get(i)));
+        }
+        return saved;
+    }
+
+    /**
+     * Deletes those of {@code ids} a follower node forwarded that still have
+     * {@code status}, or all of them without one, and returns the deleted rows.
+     */
+    public List<TodoRecord> deleteReplicated(List<Long> ids, String status) {
+        CompletionMetrics completionMetrics = tenant().completionMetrics;
+        List<TodoRecord> deleted = todoRepository.deleteAllById(ids, status);
+        for (TodoRecord record : deleted) {
+            recordDeleted(completionMetrics, record.toTodo());
+        }
+        return deleted;
+    }
+
+    /**
+     * Counts a saved todo in place of {@code previous}, null for a new one,
+     * and announces it. A follower counts and announces the changes it
+     * replays instead.
+     */
+    private void recordSaved(CompletionMetrics completionMetrics, Todo previous, Todo saved, TodoEvent.Type type) {
+        if (replicated) {
+            return;
+        }
+        if (previous != null) {
+            completionMetrics.remove(previous);
+        }
+        completionMetrics.add(saved);
+        eventBus.publish(type, saved);
+        announceDueSoon(previous, saved);
+    }
+
+    /**
+     * Announces an undone todo saved with a due date already inside the
+     * due-soon window, which the {@link DueDateScheduler} only watches due
+     * dates enter, unless it was announced before with the same due date.
+     */
+    private void announceDueSoon(Todo previous, Todo saved) {
+        if (saved.isDone() || saved.getDueDate() == null
+                || (previous != null && !previous.isDone() && saved.getDueDate().equals(previous.getDueDate()))) {
+            return;
+        }
+        long dueMillis = TodoRecord.toEpochMillis(saved.getDueDate());
+        long now = System.currentTimeMillis();
+        if (dueMillis >= now && dueMillis < now + dueSoonWindowMillis) {
+            eventBus.publish(TodoEvent.Type.DUE_SOON, saved);
+        }
+    }
+
+    private void recordDeleted(CompletionMetrics completionMetrics, Todo todo) {
+        if (replicated) {
+            return;
+        }
+        completionMetrics.remove(todo);
+        eventBus.publishDeleted(todo.getId());
+    }
+
+    private static TodoEvent.Type changeType(Todo previous, Todo saved) {
+        if (previous == null) {
+            return TodoEvent.Type.CREATED;
+        }
+        if (previous.isDone() != saved.isDone()) {
+            return saved.isDone() ? TodoEvent.Type.DONE : TodoEvent.Type.UNDONE;
+        }
+        return TodoEvent.Type.UPDATED;
+    }
+
+    private int insertBatch(List<Todo> batch) {
+        CompletionMetrics completionMetrics = tenant().completionMetrics;
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long firstId = todoRepository.reserveIds(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(firstId + i);
+        }
+        for (Todo saved : todoRepository.saveAll(batch)) {
+            recordSaved(completionMetrics, null, saved, TodoEvent.Type.CREATED);
+        }
+        int inserted = batch.size();
+        batch.clear();
+        return inserted;
+    }
+
+    private void validateNewTodo(Todo todo) {
+        if (todo.getText() == null) {
+            throw new IllegalArgumentException("Text is required");
+        }
         if (todo.getText().length() > 120) {
             throw new IllegalArgumentException("Text cannot be longer than 120 characters");
         }
         if (todo.getPriority() == null) {
             throw new IllegalArgumentException("Priority cannot be null");
         }
-        return todoRepository.save(todo);
     }
 
-    public Todo updateTodo(Long id, Todo updatedTodo) {
-        Todo todo = todoRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Todo not found with id: " + id));
-
+    private static void applyUpdate(Todo todo, Todo updatedTodo) {
         if (updatedTodo.getText() != null) {
             todo.setText(updatedTodo.getText());
         }
@@ -122,34 +926,108 @@ public class TodoService {
             todo.setPriority(updatedTodo.getPriority());
         }
         todo.setDueDate(updatedTodo.getDueDate());
+    }
 
-        return todoRepository.save(todo);
+    private record Change(Todo previous, Todo saved) {
+        boolean changed() {
+            return previous != saved;
+        }
+    }
+
+    /**
+     * Reads the todo, lets {@code change} modify a copy and saves it at the
+     * version it was read at, so a concurrent write is detected rather than
+     * lost. With an {@code expectedVersion} the conflict goes to the caller;
+     * without one the read-modify-write is retried against the newer todo.
+     * When {@code change} returns false nothing is saved.
+     */
+    private Change modify(Long id, Integer expectedVersion, Predicate<Todo> change) {
+        for (int attempt = 1; ; attempt++) {
+            Todo previous = todoRepository.findById(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Todo not found with id: " + id));
+            checkVersion(previous, expectedVersion);
+            Todo todo = copyOf(previous);
+            if (!change.test(todo)) {
+                return new Change(previous, previous);
+            }
+            try {
+                return new Change(previous, todoRepository.save(todo));
+            } catch (TodoVersionConflictException e) {
+                if (expectedVersion != null || attempt == MAX_WRITE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void checkVersion(Todo stored, Integer expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(stored.getVersion())) {
+            int actualVersion = stored.getVersion() == null ? 0 : stored.getVersion();
+            throw new TodoVersionConflictException(stored.getId(), expectedVersion, actualVersion);
+        }
+    }
+
+    private static Todo copyOf(Todo todo) {
+        Todo copy = new Todo(todo.getId(), todo.getText(), todo.getPriority(), todo.getDueDate(), todo.isDone(),
+                todo.getDoneDate(), todo.getCreationDate());
+        copy.setVersion(todo.getVersion());
+        return copy;
     }
 
     public Todo markAsDone(Long id) {
-        Todo todo = todoRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Todo not found with id: " + id));
-        if (!todo.isDone()) {
-            todo.setDone(true);
-            return todoRepository.save(todo);
+        long start = System.nanoTime();
+        try {
+            CompletionMetrics completionMetrics = tenant().completionMetrics;
+            Change change = modify(id, null, todo -> {
+                if (todo.isDone()) {
+                    return false;
+                }
+                todo.setDone(true);
+                return true;
+            });
+            if (change.changed()) {
+                recordSaved(completionMetrics, change.previous(), change.saved(), TodoEvent.Type.DONE);
+            }
+            return change.saved();
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.MARK_AS_DONE, start);
         }
-        return todo;
     }
 
     public Todo markAsUndone(Long id) {
-        Todo todo = todoRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Todo not found with id: " + id));
-        if (todo.isDone()) {
-            todo.setDone(false);
-            return todoRepository.save(todo);
+        long start = System.nanoTime();
+        try {
+            CompletionMetrics completionMetrics = tenant().completionMetrics;
+            Change change = modify(id, null, todo -> {
+                if (!todo.isDone()) {
+                    return false;
+                }
+                todo.setDone(false);
+                return true;
+            });
+            if (change.changed()) {
+                recordSaved(completionMetrics, change.previous(), change.saved(), TodoEvent.Type.UNDONE);
+            }
+            return change.saved();
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.MARK_AS_UNDONE, start);
         }
-        return todo;
     }
 
     public void deleteTodo(Long id) {
-        if (!todoRepository.existsById(id)) {
-            throw new IllegalArgumentException("Todo not found with id: " + id);
+        long start = System.nanoTime();
+        try {
+            CompletionMetrics completionMetrics = tenant().completionMetrics;
+            // Only the row the repository removed counts, so of two racing
+            // deletes one fails, and a todo changed meanwhile is counted as
+            // it was when removed.
+            List<TodoRecord> deleted = todoRepository.deleteAllById(List.of(id), null);
+            if (deleted.isEmpty()) {
+                throw new IllegalArgumentException("Todo not found with id: " + id);
+            }
+            recordDeleted(completionMetrics, deleted.get(0).toTodo());
+        } finally {
+            instrumentation.record(TodoInstrumentation.Operation.DELETE_TODO, start);
         }
-        todoRepository.deleteById(id);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,310 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.http.MediaType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads and writes todos as newline-delimited JSON or CSV one row at a time,
+ * so exports and imports of any size run in constant memory.
+ */
+public class TodoTransfer {
+    /**
+     * Longest NDJSON line read as a row. A valid row is a few hundred
+     * characters; longer lines are skipped without being buffered.
+     */
+    static final int MAX_LINE_LENGTH = 4096;
+
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson")),
+        CSV(MediaType.parseMediaType("text/csv"));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public static Format of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Format must be 'ndjson' or 'csv'");
+            }
+        }
+
+        public static Format of(MediaType contentType) {
+            for (Format format : values()) {
+                if (format.mediaType.isCompatibleWith(contentType)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Content type must be application/x-ndjson or text/csv");
+        }
+    }
+
+    public interface RowWriter extends Closeable {
+        void write(Todo todo);
+    }
+
+    @JsonPropertyOrder({"id", "text", "priority", "dueDate", "done", "doneDate", "creationDate"})
+    record Row(Long id, String text, Todo.Priority priority, LocalDateTime dueDate,
+               boolean done, LocalDateTime doneDate, LocalDateTime creationDate) {
+        static Row of(Todo todo) {
+            return new Row(todo.getId(), todo.getText(), todo.getPriority(), todo.getDueDate(),
+                    todo.isDone(), todo.getDoneDate(), todo.getCreationDate());
+        }
+
+        Todo toTodo() {
+            return new Todo(null, text, priority, dueDate, done, done ? doneDate : null, creationDate);
+        }
+    }
+
+    private final ObjectWriter jsonWriter;
+    private final ObjectReader jsonReader;
+    private final ObjectMapper jsonMapper;
+    private final ObjectWriter csvWriter;
+    private final ObjectReader csvReader;
+
+    public TodoTransfer() {
+        this(JsonMapper.builder().findAndAddModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+    }
+
+    public TodoTransfer(ObjectMapper objectMapper) {
+        this.jsonMapper = objectMapper;
+        this.jsonWriter = objectMapper.writerFor(Row.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.jsonReader = objectMapper.readerFor(Row.class);
+        CsvMapper csvMapper = CsvMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .build();
+        this.csvWriter = csvMapper.writer(csvMapper.schemaFor(Row.class).withHeader());
+        this.csvReader = csvMapper.readerFor(Row.class).with(CsvSchema.emptySchema().withHeader());
+    }
+
+    /**
+     * Returns a writer for {@code out}. Closing it flushes but leaves
+     * {@code out} open.
+     */
+    public RowWriter writer(Format format, OutputStream out) throws IOException {
+        if (format == Format.CSV) {
+            SequenceWriter sequence = csvWriter.writeValues(out);
+            return new RowWriter() {
+                @Override
+                public void write(Todo todo) {
+                    try {
+                        sequence.write(Row.of(todo));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    sequence.close();
+                }
+            };
+        }
+        JsonGenerator generator = jsonMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return new RowWriter() {
+            @Override
+            public void write(Todo todo) {
+                try {
+                    jsonWriter.writeValue(generator, Row.of(todo));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                generator.close();
+            }
+        };
+    }
+
+    /**
+     * Returns the todos in {@code in} without ids, parsed lazily. A row that
+     * cannot be parsed makes {@code next()} throw an
+     * {@link IllegalArgumentException}, and reading goes on with the next
+     * row; if {@code hasNext()} throws one, the rest of the input is lost.
+     */
+    public Iterator<Todo> reader(Format format, InputStream in) throws IOException {
+        return format == Format.CSV ? csvReader(in) : ndjsonReader(in);
+    }
+
+    private Iterator<Todo> csvReader(InputStream in) throws IOException {
+        MappingIterator<Row> rows = csvReader.readValues(in);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return rows.hasNextValue();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Malformed input: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public Todo next() {
+                try {
+                    return rows.nextValue().toTodo();
+                } catch (IOException | RuntimeException e) {
+                    throw new IllegalArgumentException("Malformed row: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Parses each line on its own, so that a syntax error does not leave the
+     * parser lost for the lines after it.
+     */
+    private Iterator<Todo> ndjsonReader(InputStream in) {
+        BoundedLineReader lines = new BoundedLineReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return new Iterator<>() {
+            private String line;
+            private boolean tooLong;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (line == null && !tooLong) {
+                        String read = lines.readLine();
+                        if (read == null) {
+                            return false;
+                        }
+                        if (lines.wasTooLong()) {
+                            tooLong = true;
+                        } else if (!read.isBlank()) {
+                            line = read;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Todo next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (tooLong) {
+                    tooLong = false;
+                    throw new IllegalArgumentException(
+                            "Malformed row: line longer than " + MAX_LINE_LENGTH + " characters");
+                }
+                String row = line;
+                line = null;
+                try {
+                    return jsonReader.<Row>readValue(row).toTodo();
+                } catch (IOException | RuntimeException e) {
+                    throw new IllegalArgumentException("Malformed row: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Splits input into lines like {@link java.io.BufferedReader#readLine()},
+     * on {@code \n} or {@code \r\n}, but keeps at most
+     * {@link #MAX_LINE_LENGTH} characters of a line. A longer line is read
+     * to its end and returned empty, with {@link #wasTooLong()} set.
+     */
+    private static final class BoundedLineReader {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean tooLong;
+
+        BoundedLineReader(Reader in) {
+            this.in = in;
+        }
+
+        /** Returns the next line without its terminator, or null at the end of the input. */
+        String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    int count = in.read(buffer, 0, buffer.length);
+                    if (count < 0) {
+                        return read ? finish() : null;
+                    }
+                    position = 0;
+                    limit = count;
+                }
+                read = true;
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                if (!tooLong) {
+                    if (line.length() + end - position > MAX_LINE_LENGTH + 1) {
+                        tooLong = true;
+                        line.setLength(0);
+                    } else {
+                        line.append(buffer, position, end - position);
+                    }
+                }
+                if (end < limit) {
+                    position = end + 1;
+                    return finish();
+                }
+                position = limit;
+            }
+        }
+
+        boolean wasTooLong() {
+            return tooLong;
+        }
+
+        private String finish() {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(--length);
+            }
+            if (length > MAX_LINE_LENGTH) {
+                tooLong = true;
+                line.setLength(0);
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Secondary index of dated todos ordered by due date, then id, so "overdue"
+ * or "due in the next hour" touch only the todos in that range instead of
+ * every stored todo. Todos without a due date are not indexed.
+ */
+class DueDateIndex {
+    private record Entry(long dueMillis, long id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byDue = Long.compare(dueMillis, other.dueMillis);
+            return byDue != 0 ? byDue : Long.compare(id, other.id);
+        }
+    }
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>();
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Moves {@code id} from {@code previousDueMillis} to {@code dueMillis};
+     * either may be {@link TodoRecord#NO_DATE}. Callers serialize updates
+     * per id.
+     */
+    void put(long id, long previousDueMillis, long dueMillis) {
+        if (previousDueMillis == dueMillis) {
+            return;
+        }
+        if (previousDueMillis != TodoRecord.NO_DATE && entries.remove(new Entry(previousDueMillis, id))) {
+            size.decrementAndGet();
+        }
+        if (dueMillis != TodoRecord.NO_DATE && entries.add(new Entry(dueMillis, id))) {
+            size.incrementAndGet();
+        }
+    }
+
+    void remove(long id, long dueMillis) {
+        put(id, dueMillis, TodoRecord.NO_DATE);
+    }
+
+    /**
+     * Ids due at or after {@code fromMillis} and before {@code toMillis}, in
+     * due-date order.
+     */
+    Iterable<Long> ids(long fromMillis, long toMillis) {
+        if (fromMillis >= toMillis) {
+            return List.of();
+        }
+        NavigableSet<Entry> range = entries.subSet(new Entry(fromMillis, Long.MIN_VALUE), true,
+                new Entry(toMillis, Long.MIN_VALUE), false);
+        return () -> new Iterator<>() {
+            private final Iterator<Entry> source = range.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public Long next() {
+                return source.next().id();
+            }
+        };
+    }
+
+    long size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,63 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps todo ids to record slots using pages of 65,536 ints, so densely
+ * allocated ids cost four bytes each on heap and sparse ids only allocate
+ * the pages they touch. Slots are stored off by one so zero means absent.
+ */
+class IdSlotIndex {
+    static final int ABSENT = -1;
+
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final ConcurrentSkipListMap<Long, AtomicIntegerArray> pages = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+
+    int get(long id) {
+        AtomicIntegerArray page = pages.get(id >>> PAGE_BITS);
+        return page == null ? ABSENT : page.get((int) (id & PAGE_MASK)) - 1;
+    }
+
+    void put(long id, int slot) {
+        AtomicIntegerArray page = pages.computeIfAbsent(id >>> PAGE_BITS, key -> new AtomicIntegerArray(PAGE_SIZE));
+        if (page.getAndSet((int) (id & PAGE_MASK), slot + 1) == 0) {
+            size.incrementAndGet();
+        }
+    }
+
+    void remove(long id) {
+        AtomicIntegerArray page = pages.get(id >>> PAGE_BITS);
+        if (page != null && page.getAndSet((int) (id & PAGE_MASK), 0) != 0) {
+            size.decrementAndGet();
+        }
+    }
+
+    long size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the first id greater than {@code afterId} that has a slot, or
+     * {@link #ABSENT} when there is none.
+     */
+    long nextId(long afterId) {
+        long from = afterId + 1;
+        for (Map.Entry<Long, AtomicIntegerArray> entry : pages.tailMap(from >>> PAGE_BITS, true).entrySet()) {
+            long base = entry.getKey() << PAGE_BITS;
+            AtomicIntegerArray page = entry.getValue();
+            for (int i = (int) Math.max(0, from - base); i < PAGE_SIZE; i++) {
+                if (page.get(i) != 0) {
+                    return base + i;
+                }
+            }
+        }
+        return ABSENT;
+    }
+}
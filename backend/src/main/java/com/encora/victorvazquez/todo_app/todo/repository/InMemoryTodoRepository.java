@@ -1,67 +1,404 @@
 package com.encora.victorvazquez.todo_app.todo.repository;
 
 import com.encora.victorvazquez.todo_app.todo.Todo;
-import org.springframework.stereotype.Repository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-@Repository
-public class InMemoryTodoRepository implements TodoRepository {
-    private final List<Todo> todos = new ArrayList<>();
-    private Long nextId = 1L;
+public class InMemoryTodoRepository implements TodoRepository, TaggedMeterBinder {
+    private static final int LOCK_STRIPES = 64;
+    // Above this many text candidates, keyset reads walk the id-ordered buckets
+    // and probe the candidate set instead of sorting every candidate per call.
+    private static final int SMALL_CANDIDATE_SET = 4096;
+    private static final Comparator<TodoRecord> BY_ID = Comparator.comparingLong(TodoRecord::id);
+
+    private final Map<Long, TodoRecord> todos = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1L);
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final StatusPriorityIndex statusPriorityIndex = new StatusPriorityIndex();
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+    private final DueDateIndex dueDateIndex = new DueDateIndex();
+    private final List<TodoChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryTodoRepository() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry, Tags tags) {
+        Gauge.builder("todo.repository.size", this, repository -> repository.todos.size())
+                .description("Number of stored todos")
+                .tags(tags)
+                .register(registry);
+        for (boolean done : new boolean[] {false, true}) {
+            for (Todo.Priority priority : Todo.Priority.values()) {
+                Gauge.builder("todo.repository.index.status_priority.size", statusPriorityIndex, index -> index.count(done, priority))
+                        .description("Number of ids in a status/priority index bucket")
+                        .tag("status", done ? "done" : "undone")
+                        .tag("priority", priority.name())
+                        .tags(tags)
+                        .register(registry);
+            }
+        }
+        Gauge.builder("todo.repository.index.due_date.size", dueDateIndex, DueDateIndex::size)
+                .description("Number of todos in the due date index")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("todo.repository.index.trigram.keys", trigramIndex, TrigramIndex::trigramCount)
+                .description("Number of distinct trigrams in the text index")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("todo.repository.index.trigram.documents", trigramIndex, TrigramIndex::indexedCount)
+                .description("Number of todos in the text index")
+                .tags(tags)
+                .register(registry);
+    }
+
+    public void addChangeListener(TodoChangeListener listener) {
+        listeners.add(listener);
+    }
 
     @Override
     public List<Todo> findAll() {
-        return new ArrayList<>(todos);
+        return findAll(null, null, null);
     }
 
     @Override
-    public List<Todo> findAll(String status, String text, Todo.Priority priority) {
-        return todos.stream()
-                .filter(todo -> status == null || todo.isDone() == status.equals("done"))
-                .filter(todo -> text == null || todo.getText().toLowerCase().contains(text.toLowerCase()))
-                .filter(todo -> priority == null || todo.getPriority() == priority)
-                .collect(Collectors.toList());
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority) {
+        Boolean done = status == null ? null : status.equals("done");
+        String needle = text == null ? null : text.toLowerCase(Locale.ROOT);
+        Set<Long> textCandidates = needle == null ? null : trigramIndex.candidates(needle);
+        List<TodoRecord> result = new ArrayList<>();
+        if (textCandidates != null) {
+            for (Long id : textCandidates) {
+                addIfMatches(result, todos.get(id), done, needle, priority);
+            }
+            result.sort(BY_ID);
+        } else {
+            for (Long id : statusPriorityIndex.ids(done, priority)) {
+                addIfMatches(result, todos.get(id), done, needle, priority);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the facets while it verifies the text candidates, so a text
+     * search visits each candidate once for both.
+     */
+    @Override
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority, TodoFacets facets) {
+        if (text == null) {
+            return TodoRepository.super.findRecords(status, null, priority, facets);
+        }
+        Boolean done = status == null ? null : status.equals("done");
+        String needle = text.toLowerCase(Locale.ROOT);
+        Set<Long> textCandidates = trigramIndex.candidates(needle);
+        List<TodoRecord> result = new ArrayList<>();
+        for (Long id : textCandidates != null ? textCandidates : statusPriorityIndex.ids(null, null)) {
+            TodoRecord todo = todos.get(id);
+            if (todo != null && TrigramIndex.containsIgnoreCase(todo.text(), needle)) {
+                facets.add(todo);
+                if ((done == null || todo.done() == done) && (priority == null || todo.priorityOrdinal() == priority.ordinal())) {
+                    result.add(todo);
+                }
+            }
+        }
+        if (textCandidates != null) {
+            result.sort(BY_ID);
+        }
+        return result;
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsAfter(String status, String text, Todo.Priority priority, Long afterId, int limit) {
+        Boolean done = status == null ? null : status.equals("done");
+        String needle = text == null ? null : text.toLowerCase(Locale.ROOT);
+        Set<Long> textCandidates = needle == null ? null : trigramIndex.candidates(needle);
+        List<TodoRecord> result = new ArrayList<>();
+        if (textCandidates != null && textCandidates.size() <= SMALL_CANDIDATE_SET) {
+            for (Long id : textCandidates) {
+                if (afterId == null || id > afterId) {
+                    addIfMatches(result, todos.get(id), done, needle, priority);
+                }
+            }
+            result.sort(BY_ID);
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        }
+        for (Long id : statusPriorityIndex.ids(done, priority, afterId)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (textCandidates == null || textCandidates.contains(id)) {
+                addIfMatches(result, todos.get(id), done, needle, priority);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsDue(String status, String text, Todo.Priority priority, long fromMillis, long toMillis) {
+        Boolean done = status == null ? null : status.equals("done");
+        String needle = text == null ? null : text.toLowerCase(Locale.ROOT);
+        List<TodoRecord> result = new ArrayList<>();
+        for (Long id : dueDateIndex.ids(fromMillis, toMillis)) {
+            addIfMatches(result, todos.get(id), done, needle, priority);
+        }
+        result.sort(BY_ID);
+        return result;
+    }
+
+    @Override
+    public long count(String status, String text, Todo.Priority priority) {
+        if (text != null) {
+            return findRecords(status, text, priority).size();
+        }
+        return statusPriorityIndex.count(status == null ? null : status.equals("done"), priority);
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        return nextId.getAndAdd(count);
     }
 
     @Override
     public Optional<Todo> findById(Long id) {
-        return todos.stream()
-                .filter(todo -> todo.getId().equals(id))
-                .findFirst();
+        TodoRecord record = todos.get(id);
+        return record == null ? Optional.empty() : Optional.of(record.toTodo());
     }
 
     @Override
-    public Todo save(Todo todo) {   
-        if (todo.getId() == null) {
-            todo.setId(nextId++);
+    public Todo save(Todo todo) {
+        assignId(todo);
+        TodoRecord record;
+        ReentrantLock lock = lockFor(todo.getId());
+        lock.lock();
+        try {
+            record = TodoRecord.from(todo, nextVersion(todo));
+            apply(record);
+        } finally {
+            lock.unlock();
+        }
+        return record.toTodo();
+    }
+
+    /**
+     * Saves every todo or, when any of them conflicts with its stored
+     * version, none of them.
+     */
+    @Override
+    public List<Todo> saveAll(Iterable<Todo> entities) {
+        List<Todo> todos = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (Todo todo : entities) {
+            assignId(todo);
             todos.add(todo);
-        } else {
-            int index = -1;
-            for (int i = 0; i < todos.size(); i++) {
-                if (todos.get(i).getId().equals(todo.getId())) {
-                    index = i;
-                    break;
-                }
+            ids.add(todo.getId());
+        }
+        List<TodoRecord> batch = new ArrayList<>(todos.size());
+        List<ReentrantLock> acquired = lockAll(ids);
+        try {
+            for (Todo todo : todos) {
+                batch.add(TodoRecord.from(todo, nextVersion(todo)));
             }
-            if (index != -1) {
-                todos.set(index, todo);
-            } else {
-                todos.add(todo);
+            for (TodoRecord record : batch) {
+                apply(record);
             }
+        } finally {
+            unlockAll(acquired);
+        }
+        List<Todo> saved = new ArrayList<>(batch.size());
+        for (TodoRecord record : batch) {
+            saved.add(record.toTodo());
+        }
+        return saved;
+    }
+
+    /**
+     * The id the next todo without one gets.
+     */
+    long nextId() {
+        return nextId.get();
+    }
+
+    /**
+     * Keeps the id generator at or past {@code next}, e.g. when restoring
+     * ids that were reserved before a restart.
+     */
+    void advanceNextId(long next) {
+        nextId.accumulateAndGet(next, Math::max);
+    }
+
+    /**
+     * Stores a record as-is, e.g. when restoring from a snapshot or log, and
+     * keeps the id generator ahead of it.
+     */
+    void put(TodoRecord record) {
+        nextId.accumulateAndGet(record.id() + 1, Math::max);
+        ReentrantLock lock = lockFor(record.id());
+        lock.lock();
+        try {
+            apply(record);
+        } finally {
+            lock.unlock();
         }
-        return todo;
+    }
+
+    Collection<TodoRecord> records() {
+        return todos.values();
     }
 
     @Override
     public void deleteById(Long id) {
-        todos.removeIf(todo -> todo.getId().equals(id));
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<Long> ids) {
+        List<Long> batch = new ArrayList<>();
+        ids.forEach(batch::add);
+        List<ReentrantLock> acquired = lockAll(batch);
+        try {
+            for (Long id : batch) {
+                remove(id);
+            }
+        } finally {
+            unlockAll(acquired);
+        }
+    }
+
+    @Override
+    public List<TodoRecord> deleteAllById(Iterable<Long> ids, String status) {
+        Boolean done = status == null ? null : status.equals("done");
+        List<Long> batch = new ArrayList<>();
+        ids.forEach(batch::add);
+        List<TodoRecord> deleted = new ArrayList<>();
+        List<ReentrantLock> acquired = lockAll(batch);
+        try {
+            for (Long id : batch) {
+                TodoRecord record = todos.get(id);
+                if (record != null && (done == null || record.done() == done)) {
+                    remove(id);
+                    deleted.add(record);
+                }
+            }
+        } finally {
+            unlockAll(acquired);
+        }
+        return deleted;
     }
 
     @Override
     public boolean existsById(Long id) {
-        return todos.stream().anyMatch(todo -> todo.getId().equals(id));
+        return todos.containsKey(id);
+    }
+
+    private static void addIfMatches(List<TodoRecord> result, TodoRecord todo, Boolean done, String needle, Todo.Priority priority) {
+        if (todo != null
+                && (done == null || todo.done() == done)
+                && (priority == null || todo.priorityOrdinal() == priority.ordinal())
+                && (needle == null || TrigramIndex.containsIgnoreCase(todo.text(), needle))) {
+            result.add(todo);
+        }
+    }
+
+    private void assignId(Todo todo) {
+        if (todo.getPriority() == null) {
+            throw new IllegalArgumentException("Priority cannot be null");
+        }
+        if (todo.getId() == null) {
+            todo.setId(nextId.getAndIncrement());
+        } else {
+            nextId.accumulateAndGet(todo.getId() + 1, Math::max);
+        }
+    }
+
+    private int nextVersion(Todo todo) {
+        TodoRecord stored = todos.get(todo.getId());
+        return TodoRecord.nextVersion(todo, stored == null ? 0 : stored.version());
+    }
+
+    private void apply(TodoRecord todo) {
+        Long id = todo.id();
+        TodoRecord previous = todos.put(id, todo);
+        dueDateIndex.put(id, previous == null ? TodoRecord.NO_DATE : previous.dueMillis(), todo.dueMillis());
+        statusPriorityIndex.put(id, todo.done(), todo.priority());
+        trigramIndex.put(id, todo.text());
+        for (TodoChangeListener listener : listeners) {
+            listener.onSave(todo);
+        }
+        version.incrementAndGet();
+    }
+
+    private void remove(Long id) {
+        TodoRecord previous = todos.remove(id);
+        if (previous != null) {
+            dueDateIndex.remove(id, previous.dueMillis());
+        }
+        statusPriorityIndex.remove(id);
+        trigramIndex.remove(id);
+        for (TodoChangeListener listener : listeners) {
+            listener.onDelete(id);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Acquires the stripes covering {@code ids} in ascending stripe order so
+     * concurrent batches cannot deadlock each other.
+     */
+    private List<ReentrantLock> lockAll(List<Long> ids) {
+        boolean[] needed = new boolean[LOCK_STRIPES];
+        for (Long id : ids) {
+            needed[stripe(id)] = true;
+        }
+        List<ReentrantLock> acquired = new ArrayList<>();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            if (needed[i]) {
+                locks[i].lock();
+                acquired.add(locks[i]);
+            }
+        }
+        return acquired;
+    }
+
+    private static void unlockAll(List<ReentrantLock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            acquired.get(i).unlock();
+        }
+    }
+
+    private static int stripe(Long id) {
+        return (int) (id & (LOCK_STRIPES - 1));
+    }
+
+    private ReentrantLock lockFor(Long id) {
+        return locks[stripe(id)];
     }
-} 
\ No newline at end of file
+}
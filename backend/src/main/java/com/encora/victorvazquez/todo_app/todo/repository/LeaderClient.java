@@ -0,0 +1,175 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP client for the {@code /replication} endpoints of the leader node,
+ * which only answer requests that carry the nodes' shared secret.
+ * Write calls return the log epoch and sequence the leader had reached after
+ * applying them, so the follower can wait until it has replayed its own write.
+ * Every request gives up when the leader has not answered in time, so a
+ * stalled leader fails writes instead of holding their threads and locks.
+ */
+final class LeaderClient {
+    static final String CONTENT_TYPE = "application/octet-stream";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    /** Allowance on top of a long poll's wait for the leader to answer it. */
+    private static final Duration POLL_MARGIN = Duration.ofSeconds(5);
+
+    record Write<T>(long epoch, long sequence, T value) {
+    }
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
+    private final URI base;
+    private final String secret;
+    private final Duration requestTimeout;
+
+    /**
+     * @param requestTimeout how long a request other than a long poll waits
+     *                       for the leader to start answering
+     */
+    LeaderClient(URI base, String secret, Duration requestTimeout) {
+        this.base = base;
+        this.secret = secret;
+        this.requestTimeout = requestTimeout;
+    }
+
+    InputStream snapshot() throws IOException {
+        return send(get("/replication/snapshot", requestTimeout));
+    }
+
+    /**
+     * Streams the entries after {@code sequence} of the log {@code epoch}, or
+     * returns {@code null} when the leader no longer has them.
+     */
+    InputStream entriesAfter(long epoch, long sequence, int max, Duration wait) throws IOException {
+        HttpRequest request = get("/replication/log?epoch=" + epoch + "&after=" + sequence + "&max=" + max
+                + "&waitMillis=" + wait.toMillis(), wait.plus(POLL_MARGIN));
+        HttpResponse<InputStream> response = exchange(request);
+        if (response.statusCode() == 410) {
+            response.body().close();
+            return null;
+        }
+        return body(response);
+    }
+
+    Write<List<Todo>> save(String tenant, List<Todo> todos) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            ReplicationCodec.writeTodos(todos, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (DataInputStream in = new DataInputStream(send(post("/replication/todos", tenant, buffer.toByteArray())))) {
+            long epoch = in.readLong();
+            long sequence = in.readLong();
+            return new Write<>(epoch, sequence, ReplicationCodec.readTodos(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes those of {@code ids} that still have {@code status} on the
+     * leader and returns the rows it deleted.
+     */
+    Write<List<TodoRecord>> delete(String tenant, List<Long> ids, String status) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            ReplicationCodec.writeIds(ids, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String path = "/replication/todos/delete" + (status == null ? "" : "?status=" + status);
+        try (DataInputStream in = new DataInputStream(send(post(path, tenant, buffer.toByteArray())))) {
+            long epoch = in.readLong();
+            long sequence = in.readLong();
+            List<TodoRecord> deleted = new ArrayList<>();
+            for (Todo todo : ReplicationCodec.readTodos(in)) {
+                deleted.add(TodoRecord.from(todo, todo.getVersion()));
+            }
+            return new Write<>(epoch, sequence, deleted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long reserveIds(String tenant, int count) {
+        return readLong(post("/replication/ids?count=" + count, tenant, new byte[0]));
+    }
+
+    private long readLong(HttpRequest request) {
+        try (DataInputStream in = new DataInputStream(send(request))) {
+            return in.readLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest get(String path, Duration timeout) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(timeout)
+                .header(ReplicationCodec.SECRET_HEADER, secret)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String tenant, byte[] body) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(requestTimeout)
+                .header(TenantContext.HEADER, tenant)
+                .header(ReplicationCodec.SECRET_HEADER, secret)
+                .header("Content-Type", CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private InputStream send(HttpRequest request) throws IOException {
+        return body(exchange(request));
+    }
+
+    private HttpResponse<InputStream> exchange(HttpRequest request) throws IOException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling the leader", e);
+        }
+    }
+
+    /**
+     * Returns the body of a successful response and turns the leader's
+     * rejections back into the exceptions its repository threw.
+     */
+    private static InputStream body(HttpResponse<InputStream> response) throws IOException {
+        int status = response.statusCode();
+        if (status == 200) {
+            return response.body();
+        }
+        try (DataInputStream in = new DataInputStream(response.body())) {
+            if (status == 409) {
+                throw new TodoVersionConflictException(in.readLong(), in.readInt(), in.readInt());
+            }
+            String message = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (status == 400) {
+                throw new IllegalArgumentException(message);
+            }
+            throw new IOException("Leader answered " + status + ": " + message);
+        }
+    }
+}
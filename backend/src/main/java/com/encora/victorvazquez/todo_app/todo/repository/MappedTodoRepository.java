@@ -0,0 +1,609 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Todo store backed by fixed-width records in a memory-mapped file, for
+ * datasets larger than the heap. Only the id-to-slot index and a handful of
+ * counters live on heap; queries, due date filters included, scan the mapped
+ * records, so they are slower than {@link InMemoryTodoRepository} but a
+ * restart only has to rebuild the index from the file.
+ *
+ * <p>Each record starts with a sequence number that writers make odd while
+ * they write the slot, so readers never take a lock and retry when they
+ * observe a write in progress. An update writes the todo to another slot and
+ * only then frees the old one, so a process that stops mid-write leaves the
+ * previous version intact. Deleted slots are chained into a free list
+ * through their id field and reused before the file grows. Changes reach
+ * the file through the OS page cache and are forced to disk on close.
+ */
+public class MappedTodoRepository implements TodoRepository, TaggedMeterBinder, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MappedTodoRepository.class);
+
+    private static final int MAGIC = 0x544F444F;
+    private static final int FORMAT_VERSION = 1;
+    static final int FILE_HEADER_SIZE = 64;
+
+    static final int SEQUENCE = 0;
+    static final int STATE = 4;
+    private static final int PRIORITY = 5;
+    private static final int DONE = 6;
+    static final int ID = 8;
+    private static final int CREATION = 16;
+    private static final int DUE = 24;
+    private static final int DONE_AT = 32;
+    private static final int TEXT_LENGTH = 40;
+    private static final int TEXT = 42;
+    static final int MAX_TEXT_BYTES = 120 * 3;
+    // In the slot tail the text never reaches, so slots written before
+    // versions existed read as version 0.
+    private static final int RECORD_VERSION = 404;
+    static final int SLOT_SIZE = 408;
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+    private static final int SLOTS_PER_REGION = 1 << 16;
+    private static final long REGION_BYTES = (long) SLOTS_PER_REGION * SLOT_SIZE;
+    private static final int NO_SLOT = -1;
+    private static final int LOCK_STRIPES = 64;
+    private static final Todo.Priority[] PRIORITIES = Todo.Priority.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    private final IdSlotIndex index = new IdSlotIndex();
+    private final AtomicLong[] bucketSizes = new AtomicLong[2 * PRIORITIES.length];
+    private final AtomicLong nextId = new AtomicLong(1L);
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock allocationLock = new ReentrantLock();
+    private int highWater;
+    private int freeHead = NO_SLOT;
+    private int freeCount;
+
+    public MappedTodoRepository(Path file) throws IOException {
+        this.file = file;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < bucketSizes.length; i++) {
+            bucketSizes[i] = new AtomicLong();
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long started = System.nanoTime();
+        open();
+        logger.info("Opened {} with {} todos in {} ms", file, index.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry, Tags tags) {
+        Gauge.builder("todo.repository.size", index, IdSlotIndex::size)
+                .description("Number of stored todos")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("todo.repository.mmap.slots", this, repository -> repository.slotCount())
+                .description("Record slots in use or on the free list")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("todo.repository.mmap.free", this, repository -> repository.freeSlotCount())
+                .description("Deleted record slots waiting to be reused")
+                .tags(tags)
+                .register(registry);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return findAll(null, null, null);
+    }
+
+    @Override
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority) {
+        return scan(status, text, priority, 0L, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsAfter(String status, String text, Todo.Priority priority, Long afterId, int limit) {
+        return scan(status, text, priority, afterId == null ? 0L : afterId, limit, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsDue(String status, String text, Todo.Priority priority, long fromMillis, long toMillis) {
+        // NO_DATE is Long.MIN_VALUE, so raising the lower bound past it leaves
+        // out todos without a due date.
+        return scan(status, text, priority, 0L, Integer.MAX_VALUE, Math.max(fromMillis, TodoRecord.NO_DATE + 1), toMillis);
+    }
+
+    @Override
+    public long count(String status, String text, Todo.Priority priority) {
+        if (text != null) {
+            return findRecords(status, text, priority).size();
+        }
+        Boolean done = status == null ? null : status.equals("done");
+        long count = 0;
+        for (int i = 0; i < bucketSizes.length; i++) {
+            if ((done == null || (i >= PRIORITIES.length) == done)
+                    && (priority == null || i % PRIORITIES.length == priority.ordinal())) {
+                count += bucketSizes[i].get();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        return nextId.getAndAdd(count);
+    }
+
+    @Override
+    public Optional<Todo> findById(Long id) {
+        TodoRecord record = read(id, null, null);
+        return record == null ? Optional.empty() : Optional.of(record.toTodo());
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        byte[] text = prepare(todo);
+        TodoRecord record;
+        ReentrantLock lock = lockFor(todo.getId());
+        lock.lock();
+        try {
+            record = toRecord(todo);
+            store(record, text);
+        } finally {
+            lock.unlock();
+        }
+        return record.toTodo();
+    }
+
+    /**
+     * Saves every todo or, when any of them conflicts with its stored
+     * version, none of them: every version is checked under the stripe locks
+     * of the whole batch before the first slot is written.
+     */
+    @Override
+    public List<Todo> saveAll(Iterable<Todo> entities) {
+        List<Todo> todos = new ArrayList<>();
+        List<byte[]> texts = new ArrayList<>();
+        for (Todo todo : entities) {
+            texts.add(prepare(todo));
+            todos.add(todo);
+        }
+        List<Long> ids = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            ids.add(todo.getId());
+        }
+        List<TodoRecord> batch = new ArrayList<>(todos.size());
+        List<ReentrantLock> acquired = lockAll(ids);
+        try {
+            for (Todo todo : todos) {
+                batch.add(toRecord(todo));
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                store(batch.get(i), texts.get(i));
+            }
+        } finally {
+            unlockAll(acquired);
+        }
+        List<Todo> saved = new ArrayList<>(batch.size());
+        for (TodoRecord record : batch) {
+            saved.add(record.toTodo());
+        }
+        return saved;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            int slot = index.get(id);
+            if (slot != IdSlotIndex.ABSENT) {
+                remove(id, slot);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<Long> ids) {
+        for (Long id : ids) {
+            deleteById(id);
+        }
+    }
+
+    @Override
+    public List<TodoRecord> deleteAllById(Iterable<Long> ids, String status) {
+        Boolean done = status == null ? null : status.equals("done");
+        List<Long> batch = new ArrayList<>();
+        ids.forEach(batch::add);
+        List<TodoRecord> deleted = new ArrayList<>();
+        List<ReentrantLock> acquired = lockAll(batch);
+        try {
+            for (Long id : batch) {
+                TodoRecord record = read(id, done, null);
+                if (record != null) {
+                    remove(id, index.get(id));
+                    deleted.add(record);
+                }
+            }
+        } finally {
+            unlockAll(acquired);
+        }
+        return deleted;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return index.get(id) != IdSlotIndex.ABSENT;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        channel.close();
+    }
+
+    int slotCount() {
+        allocationLock.lock();
+        try {
+            return highWater;
+        } finally {
+            allocationLock.unlock();
+        }
+    }
+
+    int freeSlotCount() {
+        allocationLock.lock();
+        try {
+            return freeCount;
+        } finally {
+            allocationLock.unlock();
+        }
+    }
+
+    /**
+     * Validates the todo, assigns its id and returns its encoded text.
+     */
+    private byte[] prepare(Todo todo) {
+        if (todo.getPriority() == null) {
+            throw new IllegalArgumentException("Priority cannot be null");
+        }
+        byte[] text = todo.getText() == null ? new byte[0] : todo.getText().getBytes(StandardCharsets.UTF_8);
+        if (text.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Text cannot be longer than 120 characters");
+        }
+        if (todo.getId() == null) {
+            todo.setId(nextId.getAndIncrement());
+        } else {
+            nextId.accumulateAndGet(todo.getId() + 1, Math::max);
+        }
+        return text;
+    }
+
+    /**
+     * The row {@code todo} is stored as, at the version after the stored one.
+     * Must hold the todo's stripe lock.
+     */
+    private TodoRecord toRecord(Todo todo) {
+        int slot = index.get(todo.getId());
+        int storedVersion = slot == IdSlotIndex.ABSENT ? 0 : region(slot).getInt(offset(slot) + RECORD_VERSION);
+        return TodoRecord.from(todo, TodoRecord.nextVersion(todo, storedVersion));
+    }
+
+    /**
+     * Writes the record to a new slot, points the index at it and frees the
+     * slot of the previous version, if any, and updates the counters. Must
+     * hold the record's stripe lock.
+     */
+    private void store(TodoRecord record, byte[] text) {
+        int previous = index.get(record.id());
+        if (previous != IdSlotIndex.ABSENT) {
+            MappedByteBuffer region = region(previous);
+            int offset = offset(previous);
+            bucketSizes[bucket(region.get(offset + DONE) == 1, region.get(offset + PRIORITY))].decrementAndGet();
+        }
+        int slot = allocate();
+        write(slot, record, text);
+        index.put(record.id(), slot);
+        if (previous != IdSlotIndex.ABSENT) {
+            release(previous);
+        }
+        bucketSizes[bucket(record.done(), record.priorityOrdinal())].incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Frees the slot of {@code id} and updates the indexes and counters. Must
+     * hold the id's stripe lock.
+     */
+    private void remove(long id, int slot) {
+        MappedByteBuffer region = region(slot);
+        int offset = offset(slot);
+        bucketSizes[bucket(region.get(offset + DONE) == 1, region.get(offset + PRIORITY))].decrementAndGet();
+        index.remove(id);
+        release(slot);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Acquires the stripes covering {@code ids} in ascending stripe order so
+     * concurrent batches cannot deadlock each other.
+     */
+    private List<ReentrantLock> lockAll(List<Long> ids) {
+        boolean[] needed = new boolean[LOCK_STRIPES];
+        for (Long id : ids) {
+            needed[stripe(id)] = true;
+        }
+        List<ReentrantLock> acquired = new ArrayList<>();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            if (needed[i]) {
+                locks[i].lock();
+                acquired.add(locks[i]);
+            }
+        }
+        return acquired;
+    }
+
+    private List<TodoRecord> scan(String status, String text, Todo.Priority priority, long afterId, int limit,
+                                  long fromMillis, long toMillis) {
+        Boolean done = status == null ? null : status.equals("done");
+        String needle = text == null ? null : text.toLowerCase(Locale.ROOT);
+        List<TodoRecord> result = new ArrayList<>();
+        long id = index.nextId(afterId);
+        while (id != IdSlotIndex.ABSENT && result.size() < limit) {
+            TodoRecord record = read(id, done, priority, fromMillis, toMillis);
+            if (record != null && (needle == null || TrigramIndex.containsIgnoreCase(record.text(), needle))) {
+                result.add(record);
+            }
+            id = index.nextId(id);
+        }
+        return result;
+    }
+
+    private TodoRecord read(long id, Boolean done, Todo.Priority priority) {
+        return read(id, done, priority, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the record for {@code id}, or returns {@code null} when it does
+     * not exist or does not match the status and priority filters or is not
+     * due at or after {@code fromMillis} and before {@code toMillis}. Filters
+     * are checked before the text is decoded.
+     */
+    private TodoRecord read(long id, Boolean done, Todo.Priority priority, long fromMillis, long toMillis) {
+        while (true) {
+            int slot = index.get(id);
+            if (slot == IdSlotIndex.ABSENT) {
+                return null;
+            }
+            MappedByteBuffer region = region(slot);
+            int offset = offset(slot);
+            int sequence = region.getInt(offset + SEQUENCE);
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            VarHandle.acquireFence();
+            boolean live = region.get(offset + STATE) == LIVE && region.getLong(offset + ID) == id;
+            boolean isDone = region.get(offset + DONE) == 1;
+            byte priorityOrdinal = region.get(offset + PRIORITY);
+            long dueMillis = region.getLong(offset + DUE);
+            boolean matches = live
+                    && (done == null || isDone == done)
+                    && (priority == null || priorityOrdinal == priority.ordinal())
+                    && dueMillis >= fromMillis && dueMillis < toMillis;
+            TodoRecord record = null;
+            if (matches) {
+                int length = region.getShort(offset + TEXT_LENGTH) & 0xFFFF;
+                byte[] text = new byte[Math.min(length, MAX_TEXT_BYTES)];
+                region.get(offset + TEXT, text);
+                record = new TodoRecord(id, new String(text, StandardCharsets.UTF_8), priorityOrdinal, isDone,
+                        region.getLong(offset + CREATION), dueMillis, region.getLong(offset + DONE_AT),
+                        region.getInt(offset + RECORD_VERSION));
+            }
+            VarHandle.loadLoadFence();
+            if (region.getInt(offset + SEQUENCE) != sequence) {
+                continue;
+            }
+            if (!live && index.get(id) != slot) {
+                continue;
+            }
+            return record;
+        }
+    }
+
+    private void write(int slot, TodoRecord record, byte[] text) {
+        MappedByteBuffer region = region(slot);
+        int offset = offset(slot);
+        int sequence = region.getInt(offset + SEQUENCE);
+        region.putInt(offset + SEQUENCE, sequence + 1);
+        VarHandle.storeStoreFence();
+        region.put(offset + STATE, LIVE);
+        region.put(offset + PRIORITY, record.priorityOrdinal());
+        region.put(offset + DONE, (byte) (record.done() ? 1 : 0));
+        region.putLong(offset + ID, record.id());
+        region.putLong(offset + CREATION, record.creationMillis());
+        region.putLong(offset + DUE, record.dueMillis());
+        region.putLong(offset + DONE_AT, record.doneMillis());
+        region.putShort(offset + TEXT_LENGTH, (short) text.length);
+        region.put(offset + TEXT, text);
+        region.putInt(offset + RECORD_VERSION, record.version());
+        VarHandle.releaseFence();
+        region.putInt(offset + SEQUENCE, sequence + 2);
+    }
+
+    private int allocate() {
+        allocationLock.lock();
+        try {
+            if (freeHead != NO_SLOT) {
+                int slot = freeHead;
+                freeHead = (int) region(slot).getLong(offset(slot) + ID);
+                freeCount--;
+                return slot;
+            }
+            if (highWater == (long) regions.length * SLOTS_PER_REGION) {
+                mapRegion(regions.length);
+            }
+            return highWater++;
+        } finally {
+            allocationLock.unlock();
+        }
+    }
+
+    private void release(int slot) {
+        MappedByteBuffer region = region(slot);
+        int offset = offset(slot);
+        allocationLock.lock();
+        try {
+            int sequence = region.getInt(offset + SEQUENCE);
+            region.putInt(offset + SEQUENCE, sequence + 1);
+            VarHandle.storeStoreFence();
+            region.put(offset + STATE, FREE);
+            region.putLong(offset + ID, freeHead);
+            VarHandle.releaseFence();
+            region.putInt(offset + SEQUENCE, sequence + 2);
+            freeHead = slot;
+            freeCount++;
+        } finally {
+            allocationLock.unlock();
+        }
+    }
+
+    /**
+     * Maps the existing file and rebuilds the id index, bucket counts and free
+     * list from it. A slot whose sequence is odd was being written when
+     * the process stopped and is discarded. Two live slots with the same id
+     * are an update whose old slot was not freed yet; the higher version wins.
+     */
+    private void open() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(SLOT_SIZE).flip();
+            channel.write(header, 0);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION || header.getInt() != SLOT_SIZE) {
+            throw new IOException(file + " is not a todo record file of this format version");
+        }
+        int regionCount = (int) ((size - FILE_HEADER_SIZE + REGION_BYTES - 1) / REGION_BYTES);
+        for (int i = 0; i < regionCount; i++) {
+            mapRegion(i);
+        }
+        int slots = regionCount * SLOTS_PER_REGION;
+        boolean[] free = new boolean[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            MappedByteBuffer region = region(slot);
+            int offset = offset(slot);
+            if ((region.getInt(offset + SEQUENCE) & 1) != 0) {
+                region.putInt(offset + SEQUENCE, region.getInt(offset + SEQUENCE) + 1);
+                region.put(offset + STATE, FREE);
+            }
+            if (region.get(offset + STATE) != LIVE) {
+                free[slot] = true;
+                continue;
+            }
+            long id = region.getLong(offset + ID);
+            int other = index.get(id);
+            if (other != IdSlotIndex.ABSENT) {
+                int stale = region(other).getInt(offset(other) + RECORD_VERSION) < region.getInt(offset + RECORD_VERSION)
+                        ? other : slot;
+                MappedByteBuffer staleRegion = region(stale);
+                int staleOffset = offset(stale);
+                staleRegion.put(staleOffset + STATE, FREE);
+                free[stale] = true;
+                if (stale == slot) {
+                    continue;
+                }
+                bucketSizes[bucket(staleRegion.get(staleOffset + DONE) == 1, staleRegion.get(staleOffset + PRIORITY))].decrementAndGet();
+            }
+            index.put(id, slot);
+            bucketSizes[bucket(region.get(offset + DONE) == 1, region.get(offset + PRIORITY))].incrementAndGet();
+            nextId.accumulateAndGet(id + 1, Math::max);
+            highWater = slot + 1;
+        }
+        for (int slot = highWater - 1; slot >= 0; slot--) {
+            if (free[slot]) {
+                region(slot).putLong(offset(slot) + ID, freeHead);
+                freeHead = slot;
+                freeCount++;
+            }
+        }
+    }
+
+    private void mapRegion(int regionIndex) {
+        try {
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE,
+                    FILE_HEADER_SIZE + regionIndex * REGION_BYTES, REGION_BYTES);
+            MappedByteBuffer[] grown = Arrays.copyOf(regions, regionIndex + 1);
+            grown[regionIndex] = region;
+            regions = grown;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow " + file, e);
+        }
+    }
+
+    private MappedByteBuffer region(int slot) {
+        return regions[slot / SLOTS_PER_REGION];
+    }
+
+    private static int offset(int slot) {
+        return (slot % SLOTS_PER_REGION) * SLOT_SIZE;
+    }
+
+    private static int bucket(boolean done, int priorityOrdinal) {
+        return (done ? PRIORITIES.length : 0) + priorityOrdinal;
+    }
+
+    private static void unlockAll(List<ReentrantLock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            acquired.get(i).unlock();
+        }
+    }
+
+    private static int stripe(long id) {
+        return (int) (id & (LOCK_STRIPES - 1));
+    }
+
+    private ReentrantLock lockFor(long id) {
+        return locks[stripe(id)];
+    }
+}
@@ -0,0 +1,73 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Framing shared by the write-ahead log and snapshot files. Every record is
+ * written as [int length][int crc32][payload]; reading stops at the first
+ * torn or corrupt frame, which is how a crash mid-write shows up on disk.
+ */
+final class RecordFiles {
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private RecordFiles() {
+    }
+
+    static void writeFrame(ByteBuffer target, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        target.putInt(payload.length);
+        target.putInt((int) crc.getValue());
+        target.put(payload);
+    }
+
+    /**
+     * Streams every intact frame of {@code file} to {@code consumer}. Returns
+     * {@code false} if the file ends with a torn or corrupt frame.
+     */
+    static boolean readFrames(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            boolean eof = false;
+            while (true) {
+                if (!eof && buffer.hasRemaining() && channel.read(buffer) < 0) {
+                    eof = true;
+                }
+                buffer.flip();
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int start = buffer.position();
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (length < 0 || length > READ_BUFFER_SIZE - HEADER_SIZE) {
+                        return false;
+                    }
+                    if (buffer.remaining() < length) {
+                        buffer.position(start);
+                        break;
+                    }
+                    ByteBuffer payload = buffer.slice(buffer.position(), length);
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        return false;
+                    }
+                    consumer.accept(payload);
+                    buffer.position(buffer.position() + length);
+                }
+                boolean drained = !buffer.hasRemaining();
+                buffer.compact();
+                if (eof) {
+                    return drained;
+                }
+            }
+        }
+    }
+}
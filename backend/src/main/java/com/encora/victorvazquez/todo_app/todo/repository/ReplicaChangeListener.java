@@ -0,0 +1,20 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+
+/**
+ * Receives every change a {@link ReplicationFollower} replays from the
+ * leader's log. {@code previous} is null for a new todo and {@code current}
+ * for a deleted one. Callbacks run on the replication thread, right before
+ * and right after the replica changes, and must not block.
+ */
+public interface ReplicaChangeListener {
+    void beforeChange(String tenant, Todo previous, Todo current);
+    void afterChange(String tenant, Todo previous, Todo current);
+
+    /**
+     * The replica of {@code tenant} was replaced with one loaded from a
+     * snapshot, without reporting the individual changes.
+     */
+    void onReplaced(String tenant);
+}
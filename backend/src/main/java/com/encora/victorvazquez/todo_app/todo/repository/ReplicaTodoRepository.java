@@ -0,0 +1,211 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One tenant's store on a follower node. Reads are served from a local
+ * {@link InMemoryTodoRepository} that {@link ReplicationFollower} keeps up to
+ * date from the leader's log; writes are forwarded to the leader and return
+ * once the follower has replayed them, so a client sees its own writes.
+ *
+ * <p>New todos get their ids from a block this node leases from the leader,
+ * so followers number todos without a round trip per id and without
+ * colliding with each other or the leader.
+ */
+class ReplicaTodoRepository implements TodoRepository {
+    /**
+     * The replica and the offset added to its version. A resync swaps in a
+     * fresh replica whose version starts over, so the offset keeps
+     * {@link #version()} increasing and cached pages invalidated.
+     */
+    private record State(InMemoryTodoRepository replica, long versionOffset) {
+    }
+
+    private final String tenant;
+    private final ReplicationFollower follower;
+    private final int idBlock;
+    private volatile State state = new State(new InMemoryTodoRepository(), 0);
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private long nextId;
+    private long leaseEnd;
+
+    ReplicaTodoRepository(String tenant, ReplicationFollower follower, int idBlock) {
+        this.tenant = tenant;
+        this.follower = follower;
+        this.idBlock = idBlock;
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return replica().findAll();
+    }
+
+    @Override
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority) {
+        return replica().findRecords(status, text, priority);
+    }
+
+    @Override
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority, TodoFacets facets) {
+        return replica().findRecords(status, text, priority, facets);
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsAfter(String status, String text, Todo.Priority priority, Long afterId, int limit) {
+        return replica().findRecordsAfter(status, text, priority, afterId, limit);
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsDue(String status, String text, Todo.Priority priority, long fromMillis, long toMillis) {
+        return replica().findRecordsDue(status, text, priority, fromMillis, toMillis);
+    }
+
+    @Override
+    public long count(String status, String text, Todo.Priority priority) {
+        return replica().count(status, text, priority);
+    }
+
+    @Override
+    public long version() {
+        State current = state;
+        return current.versionOffset() + current.replica().version();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        return follower.leader().reserveIds(tenant, count);
+    }
+
+    @Override
+    public Optional<Todo> findById(Long id) {
+        return replica().findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return replica().existsById(id);
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        return saveAll(List.of(todo)).get(0);
+    }
+
+    @Override
+    public List<Todo> saveAll(Iterable<Todo> entities) {
+        List<Todo> todos = new ArrayList<>();
+        for (Todo todo : entities) {
+            if (todo.getPriority() == null) {
+                throw new IllegalArgumentException("Priority cannot be null");
+            }
+            if (todo.getId() == null) {
+                todo.setId(nextId());
+            }
+            todos.add(todo);
+        }
+        if (todos.isEmpty()) {
+            return List.of();
+        }
+        LeaderClient.Write<List<Todo>> write = follower.leader().save(tenant, todos);
+        follower.awaitApplied(write.epoch(), write.sequence());
+        return write.value();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        deleteAllById(List.of(id));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<Long> ids) {
+        deleteAllById(ids, null);
+    }
+
+    @Override
+    public List<TodoRecord> deleteAllById(Iterable<Long> ids, String status) {
+        List<Long> batch = new ArrayList<>();
+        ids.forEach(batch::add);
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        LeaderClient.Write<List<TodoRecord>> write = follower.leader().delete(tenant, batch, status);
+        follower.awaitApplied(write.epoch(), write.sequence());
+        return write.value();
+    }
+
+    void apply(ReplicationLog.Entry entry) {
+        TodoRecord record = null;
+        long id;
+        if (entry.op() == ReplicationLog.OP_SAVE) {
+            record = TodoCodec.decode(ByteBuffer.wrap(entry.payload()));
+            id = record.id();
+        } else if (entry.op() == ReplicationLog.OP_DELETE) {
+            id = ByteBuffer.wrap(entry.payload()).getLong();
+        } else {
+            return;
+        }
+        ReplicaChangeListener listener = follower.changeListener();
+        if (listener == null) {
+            store(id, record);
+            return;
+        }
+        Todo previous = replica().findById(id).orElse(null);
+        Todo current = record == null ? null : record.toTodo();
+        // An entry replayed over a snapshot that already has it changes nothing.
+        if (previous == null && current == null
+                || previous != null && current != null && Objects.equals(previous.getVersion(), current.getVersion())) {
+            store(id, record);
+            return;
+        }
+        listener.beforeChange(tenant, previous, current);
+        store(id, record);
+        listener.afterChange(tenant, previous, current);
+    }
+
+    private void store(long id, TodoRecord record) {
+        if (record != null) {
+            replica().put(record);
+        } else {
+            replica().deleteById(id);
+        }
+    }
+
+    /**
+     * Replaces the whole replica, e.g. with one loaded from a snapshot. Only
+     * the replication thread calls this. The leased ids are dropped too: a
+     * leader that restarted without a durable store hands them out again.
+     */
+    void replace(InMemoryTodoRepository replica) {
+        State current = state;
+        state = new State(replica, current.versionOffset() + current.replica().version() + 1);
+        leaseLock.lock();
+        try {
+            nextId = leaseEnd;
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    private InMemoryTodoRepository replica() {
+        return state.replica();
+    }
+
+    private long nextId() {
+        leaseLock.lock();
+        try {
+            if (nextId == leaseEnd) {
+                nextId = follower.leader().reserveIds(tenant, idBlock);
+                leaseEnd = nextId + idBlock;
+            }
+            return nextId++;
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary messages exchanged between replicated nodes: log entries, and the
+ * todos and ids of writes a follower forwards to the leader. Todos travel as
+ * {@link TodoCodec} rows whose version is the one they were read at, -1 for
+ * none. Every request carries the nodes' shared secret in
+ * {@value #SECRET_HEADER}.
+ */
+public final class ReplicationCodec {
+    public static final String SECRET_HEADER = "X-Replication-Secret";
+    private static final int NO_VERSION = -1;
+
+    private ReplicationCodec() {
+    }
+
+    public static void writeEntry(ReplicationLog.Entry entry, DataOutputStream out) throws IOException {
+        out.writeLong(entry.epoch());
+        out.writeLong(entry.sequence());
+        out.writeUTF(entry.tenant());
+        out.writeByte(entry.op());
+        out.writeInt(entry.payload().length);
+        out.write(entry.payload());
+    }
+
+    /**
+     * Reads the next entry, or returns {@code null} at the end of the stream.
+     */
+    public static ReplicationLog.Entry readEntry(DataInputStream in) throws IOException {
+        long epoch;
+        try {
+            epoch = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+        long sequence = in.readLong();
+        String tenant = in.readUTF();
+        byte op = in.readByte();
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return new ReplicationLog.Entry(epoch, sequence, tenant, op, payload);
+    }
+
+    /**
+     * Writes todos that already have an id and priority.
+     */
+    public static void writeTodos(List<Todo> todos, DataOutputStream out) throws IOException {
+        out.writeInt(todos.size());
+        for (Todo todo : todos) {
+            byte[] row = TodoCodec.encode(TodoRecord.from(todo, todo.getVersion() == null ? NO_VERSION : todo.getVersion()));
+            out.writeInt(row.length);
+            out.write(row);
+        }
+    }
+
+    public static List<Todo> readTodos(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Todo> todos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] row = new byte[in.readInt()];
+            in.readFully(row);
+            Todo todo = TodoCodec.decode(ByteBuffer.wrap(row)).toTodo();
+            if (todo.getVersion() == NO_VERSION) {
+                todo.setVersion(null);
+            }
+            todos.add(todo);
+        }
+        return todos;
+    }
+
+    public static void writeIds(List<Long> ids, DataOutputStream out) throws IOException {
+        out.writeInt(ids.size());
+        for (Long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    public static List<Long> readIds(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(in.readLong());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,246 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps a follower node's replicas in step with the leader. A background
+ * thread loads a snapshot, then long-polls the leader's log and applies each
+ * entry to the replica of its tenant, in sequence order. When the leader has
+ * already dropped the entries it needs, or has restarted with a log of
+ * another epoch, it loads a new snapshot.
+ *
+ * <p>{@link #repository()} is the node's todo store: reads are local, writes
+ * go to the leader. Writers wait for their entry on a {@link ReentrantLock}
+ * condition, which unlike a monitor does not pin a virtual thread's carrier.
+ */
+public class ReplicationFollower implements MeterBinder, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationFollower.class);
+    private static final int MAX_ENTRIES_PER_POLL = 10_000;
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final LeaderClient leader;
+    private final Duration pollWait;
+    private final Duration writeTimeout;
+    private final TenantShardedTodoRepository repository;
+    private final Thread thread;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition applied = lock.newCondition();
+    private volatile ReplicaChangeListener changeListener;
+    private long appliedEpoch;
+    private long appliedSequence = -1;
+    private volatile boolean closed;
+
+    /**
+     * @param secret     shared secret the leader expects from other nodes
+     * @param idBlock    ids leased from the leader at a time, per tenant
+     * @param pollWait   how long one poll waits on the leader for new entries
+     * @param writeTimeout how long a forwarded write waits for the leader to
+     *                   answer, and then to be replayed locally before it
+     *                   returns anyway
+     */
+    public ReplicationFollower(URI leader, String secret, int idBlock, Duration pollWait, Duration writeTimeout) {
+        if (idBlock < 1) {
+            throw new IllegalArgumentException("Id block must be positive");
+        }
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("todo.replication.secret must be set on a replication follower");
+        }
+        this.leader = new LeaderClient(leader, secret, writeTimeout);
+        this.pollWait = pollWait;
+        this.writeTimeout = writeTimeout;
+        this.repository = new TenantShardedTodoRepository(tenant -> new ReplicaTodoRepository(tenant, this, idBlock));
+        this.thread = new Thread(this::replicate, "todo-replication");
+        this.thread.setDaemon(true);
+    }
+
+    public TenantShardedTodoRepository repository() {
+        return repository;
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todo.replication.sequence", this, ReplicationFollower::appliedSequence)
+                .description("Last leader log sequence applied by this follower")
+                .register(registry);
+    }
+
+    public long appliedSequence() {
+        lock.lock();
+        try {
+            return appliedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the first snapshot has been loaded, i.e. the replicas hold the
+     * leader's data.
+     */
+    public boolean isSynced() {
+        return appliedSequence() >= 0;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        thread.interrupt();
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Reports the changes replayed from now on, e.g. to keep the node's
+     * metrics and events in step with the replicas.
+     */
+    public void setChangeListener(ReplicaChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    ReplicaChangeListener changeListener() {
+        return changeListener;
+    }
+
+    LeaderClient leader() {
+        return leader;
+    }
+
+    /**
+     * Waits until the entry at {@code sequence} of the log {@code epoch} has
+     * been applied, or the write timeout has passed.
+     */
+    void awaitApplied(long epoch, long sequence) {
+        lock.lock();
+        try {
+            long remaining = writeTimeout.toNanos();
+            while (appliedEpoch != epoch || appliedSequence < sequence) {
+                if (remaining <= 0) {
+                    logger.warn("Timed out waiting to replay sequence {}, at {}", sequence, appliedSequence);
+                    return;
+                }
+                remaining = applied.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void replicate() {
+        boolean synced = false;
+        while (!closed) {
+            try {
+                if (!synced) {
+                    loadSnapshot();
+                    synced = true;
+                }
+                synced = pollOnce();
+            } catch (IOException | RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                logger.warn("Replication from the leader failed, retrying: {}", e.toString());
+                try {
+                    Thread.sleep(RETRY_DELAY.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        long started = System.nanoTime();
+        Map<String, InMemoryTodoRepository> replicas = new HashMap<>();
+        long epoch;
+        long sequence;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(leader.snapshot()))) {
+            epoch = in.readLong();
+            sequence = in.readLong();
+            ReplicationLog.Entry entry;
+            while ((entry = ReplicationCodec.readEntry(in)) != null) {
+                replicas.computeIfAbsent(entry.tenant(), tenant -> new InMemoryTodoRepository())
+                        .put(TodoCodec.decode(ByteBuffer.wrap(entry.payload())));
+            }
+        }
+        for (String tenant : repository.tenants()) {
+            replicas.putIfAbsent(tenant, new InMemoryTodoRepository());
+        }
+        long todos = 0;
+        for (Map.Entry<String, InMemoryTodoRepository> replica : replicas.entrySet()) {
+            ((ReplicaTodoRepository) repository.shard(replica.getKey())).replace(replica.getValue());
+            ReplicaChangeListener listener = changeListener;
+            if (listener != null) {
+                listener.onReplaced(replica.getKey());
+            }
+            todos += replica.getValue().count(null, null, null);
+        }
+        advance(epoch, sequence);
+        logger.info("Loaded {} todos from the leader's snapshot at sequence {} in {} ms", todos, sequence,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Applies the next entries of the log and returns {@code false} when a
+     * snapshot is needed instead.
+     */
+    private boolean pollOnce() throws IOException {
+        long epoch;
+        long sequence;
+        lock.lock();
+        try {
+            epoch = appliedEpoch;
+            sequence = appliedSequence;
+        } finally {
+            lock.unlock();
+        }
+        InputStream body = leader.entriesAfter(epoch, sequence, MAX_ENTRIES_PER_POLL, pollWait);
+        if (body == null) {
+            logger.info("The leader no longer has the log after sequence {}, resyncing", sequence);
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(body))) {
+            ReplicationLog.Entry entry;
+            while ((entry = ReplicationCodec.readEntry(in)) != null) {
+                if (entry.epoch() != epoch) {
+                    logger.info("The leader's log changed epoch, resyncing");
+                    return false;
+                }
+                ((ReplicaTodoRepository) repository.shard(entry.tenant())).apply(entry);
+                advance(epoch, entry.sequence());
+            }
+        }
+        return true;
+    }
+
+    private void advance(long epoch, long sequence) {
+        lock.lock();
+        try {
+            appliedEpoch = epoch;
+            appliedSequence = sequence;
+            applied.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
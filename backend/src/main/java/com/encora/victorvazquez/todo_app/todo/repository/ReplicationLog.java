@@ -0,0 +1,158 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ordered log of the mutations a leader node applies, kept in memory for
+ * followers to tail. Every entry gets the next sequence number; the oldest
+ * entries are dropped once {@code capacity} is reached, and a follower that
+ * falls behind them starts over from a snapshot.
+ *
+ * <p>Entries are appended from {@link TodoChangeListener} callbacks, which
+ * run under the stripe lock of the changed id, so the log order of any one id
+ * is the order its mutations were applied. Replaying the log in sequence
+ * order therefore converges to the leader's state.
+ *
+ * <p>Sequences start over whenever a leader starts, so every log gets a random
+ * {@link #epoch()} that its entries, snapshots and write answers carry. A
+ * follower whose epoch no longer matches the leader's reloads a snapshot
+ * instead of waiting for, or skipping, sequences of another log.
+ *
+ * <p>Followers long-poll {@link #entriesAfter} on request threads, so waiting
+ * uses a {@link ReentrantLock} condition rather than a monitor, which would
+ * pin a virtual thread's carrier for the whole wait.
+ */
+public class ReplicationLog {
+    static final byte OP_SAVE = 1;
+    static final byte OP_DELETE = 2;
+
+    public record Entry(long epoch, long sequence, String tenant, byte op, byte[] payload) {
+    }
+
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final int capacity;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private long lastSequence;
+
+    public ReplicationLog(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Replication log capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Logs every mutation of {@code shard}, the store of {@code tenant}. Only
+     * stores that report their changes can be replicated.
+     */
+    public void attach(TodoRepository shard, String tenant) {
+        TodoChangeListener listener = new TodoChangeListener() {
+            @Override
+            public void onSave(TodoRecord todo) {
+                append(tenant, OP_SAVE, TodoCodec.encode(todo));
+            }
+
+            @Override
+            public void onDelete(Long id) {
+                append(tenant, OP_DELETE, ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+            }
+        };
+        if (shard instanceof InMemoryTodoRepository memory) {
+            memory.addChangeListener(listener);
+        } else if (shard instanceof WriteAheadLogTodoRepository wal) {
+            wal.addChangeListener(listener);
+        } else {
+            throw new IllegalArgumentException("Cannot replicate " + shard.getClass().getSimpleName());
+        }
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code max} entries after {@code sequence}, waiting up to
+     * {@code wait} for the first one, or {@code null} when entries right
+     * after {@code sequence} have already been dropped.
+     */
+    public List<Entry> entriesAfter(long sequence, int max, Duration wait) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = wait.toNanos();
+            while (lastSequence <= sequence) {
+                if (remaining <= 0) {
+                    return List.of();
+                }
+                remaining = appended.awaitNanos(remaining);
+            }
+            long first = lastSequence - entries.size() + 1;
+            if (sequence + 1 < first) {
+                return null;
+            }
+            List<Entry> result = new ArrayList<>((int) Math.min(max, lastSequence - sequence));
+            long skip = sequence + 1 - first;
+            for (Entry entry : entries) {
+                if (skip > 0) {
+                    skip--;
+                } else if (result.size() < max) {
+                    result.add(entry);
+                } else {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every record of every tenant as save entries, preceded by the
+     * epoch and the sequence they were read at. The records may already include later
+     * mutations; a follower that replays the log from that sequence
+     * re-applies them in order and ends up in the same state.
+     */
+    public void writeSnapshot(TenantShardedTodoRepository repository, DataOutputStream out) throws IOException {
+        long sequence = lastSequence();
+        out.writeLong(epoch);
+        out.writeLong(sequence);
+        for (String tenant : repository.tenants()) {
+            for (TodoRecord record : repository.shard(tenant).findRecords(null, null, null)) {
+                ReplicationCodec.writeEntry(new Entry(epoch, sequence, tenant, OP_SAVE, TodoCodec.encode(record)), out);
+            }
+        }
+    }
+
+    private void append(String tenant, byte op, byte[] payload) {
+        lock.lock();
+        try {
+            if (entries.size() == capacity) {
+                entries.removeFirst();
+            }
+            entries.addLast(new Entry(epoch, ++lastSequence, tenant, op, payload));
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Secondary index that keeps todo ids bucketed by (done, priority).
+ * Every id lives in exactly one bucket, so any status/priority filter is
+ * answered by merging at most six id-ordered buckets instead of scanning.
+ */
+class StatusPriorityIndex {
+    private static final Todo.Priority[] PRIORITIES = Todo.Priority.values();
+
+    private final NavigableSet<Long>[] buckets;
+    private final AtomicLong[] sizes;
+
+    @SuppressWarnings("unchecked")
+    StatusPriorityIndex() {
+        buckets = new NavigableSet[2 * PRIORITIES.length];
+        sizes = new AtomicLong[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ConcurrentSkipListSet<>();
+            sizes[i] = new AtomicLong();
+        }
+    }
+
+    void put(Long id, boolean done, Todo.Priority priority) {
+        int target = bucket(done, priority);
+        if (buckets[target].add(id)) {
+            sizes[target].incrementAndGet();
+        }
+        for (int i = 0; i < buckets.length; i++) {
+            if (i != target && buckets[i].remove(id)) {
+                sizes[i].decrementAndGet();
+            }
+        }
+    }
+
+    void remove(Long id) {
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i].remove(id)) {
+                sizes[i].decrementAndGet();
+            }
+        }
+    }
+
+    Iterable<Long> ids(Boolean done, Todo.Priority priority) {
+        return ids(done, priority, null);
+    }
+
+    /**
+     * Ids matching the filter in ascending order, starting strictly after
+     * {@code afterId} when it is given.
+     */
+    Iterable<Long> ids(Boolean done, Todo.Priority priority, Long afterId) {
+        List<NavigableSet<Long>> selected = new ArrayList<>(buckets.length);
+        for (int i : selectedBuckets(done, priority)) {
+            selected.add(afterId == null ? buckets[i] : buckets[i].tailSet(afterId, false));
+        }
+        if (selected.size() == 1) {
+            return selected.get(0);
+        }
+        return () -> new MergingIterator(selected);
+    }
+
+    long count(Boolean done, Todo.Priority priority) {
+        long count = 0;
+        for (int i : selectedBuckets(done, priority)) {
+            count += sizes[i].get();
+        }
+        return count;
+    }
+
+    private static int[] selectedBuckets(Boolean done, Todo.Priority priority) {
+        int[] selected = new int[2 * PRIORITIES.length];
+        int size = 0;
+        for (int d = 0; d < 2; d++) {
+            if (done != null && done != (d == 1)) {
+                continue;
+            }
+            for (Todo.Priority p : PRIORITIES) {
+                if (priority == null || priority == p) {
+                    selected[size++] = bucket(d == 1, p);
+                }
+            }
+        }
+        return Arrays.copyOf(selected, size);
+    }
+
+    private static int bucket(boolean done, Todo.Priority priority) {
+        return (done ? PRIORITIES.length : 0) + priority.ordinal();
+    }
+
+    private static class MergingIterator implements Iterator<Long> {
+        private final Iterator<Long>[] sources;
+        private final Long[] heads;
+
+        @SuppressWarnings("unchecked")
+        MergingIterator(List<NavigableSet<Long>> sets) {
+            sources = new Iterator[sets.size()];
+            heads = new Long[sets.size()];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = sets.get(i).iterator();
+                heads[i] = sources[i].hasNext() ? sources[i].next() : null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Long head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Long next() {
+            int min = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (min == -1 || heads[i] < heads[min])) {
+                    min = i;
+                }
+            }
+            if (min == -1) {
+                throw new NoSuchElementException();
+            }
+            Long result = heads[min];
+            // put() adds an id to its new bucket before it leaves the old one,
+            // so a merge running alongside can meet it in both.
+            for (int i = 0; i < heads.length; i++) {
+                if (result.equals(heads[i])) {
+                    heads[i] = sources[i].hasNext() ? sources[i].next() : null;
+                }
+            }
+            return result;
+        }
+    }
+}
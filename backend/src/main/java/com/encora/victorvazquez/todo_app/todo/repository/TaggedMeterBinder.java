@@ -0,0 +1,18 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * A {@link MeterBinder} whose meters can carry extra tags, so that several
+ * instances, e.g. the shards of different tenants, can register side by side.
+ */
+public interface TaggedMeterBinder extends MeterBinder {
+    void bindTo(MeterRegistry registry, Tags tags);
+
+    @Override
+    default void bindTo(MeterRegistry registry) {
+        bindTo(registry, Tags.empty());
+    }
+}
@@ -0,0 +1,271 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Routes every call to the shard of the {@link TenantContext#current()}
+ * tenant. Each shard is an independent repository with its own id sequence,
+ * indexes, locks and version, so a tenant's queries and writes only touch
+ * its own data. A tenant's shard is created by its first write, up to
+ * {@code maxShards} of them; reads of a tenant without one see no todos, so
+ * made-up tenant ids cannot fill the heap or the disk. Each shard's meters
+ * are registered with a {@code tenant} tag as soon as both the shard and the
+ * registry exist.
+ */
+public class TenantShardedTodoRepository implements TodoRepository, MeterBinder, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TenantShardedTodoRepository.class);
+
+    private final Function<String, TodoRepository> shardFactory;
+    private final Set<String> existingTenants;
+    private final int maxShards;
+    private final Map<String, TodoRepository> shards = new ConcurrentHashMap<>();
+    /** Tenants with a shard, or with one on disk that may still be opening. */
+    private final Set<String> tenants = ConcurrentHashMap.newKeySet();
+    private final TodoRepository noShard = new InMemoryTodoRepository();
+    private volatile MeterRegistry registry;
+    private final CompletableFuture<Void> warmUp = new CompletableFuture<>();
+
+    public TenantShardedTodoRepository(Function<String, TodoRepository> shardFactory) {
+        this(shardFactory, List.of());
+    }
+
+    /**
+     * Opens the shards of {@code existingTenants} up front, e.g. those found
+     * on disk, so their data is visible before the tenant's first request.
+     */
+    public TenantShardedTodoRepository(Function<String, TodoRepository> shardFactory, Collection<String> existingTenants) {
+        this(shardFactory, existingTenants, false);
+    }
+
+    /**
+     * With {@code background} set the shards of {@code existingTenants} are
+     * opened, i.e. recovered and indexed, on a background thread, so the
+     * application starts serving while they load. A request for a tenant
+     * whose shard is still being opened waits for it; {@link #warmUp()}
+     * completes once every shard is open.
+     */
+    public TenantShardedTodoRepository(Function<String, TodoRepository> shardFactory, Collection<String> existingTenants,
+                                       boolean background) {
+        this(shardFactory, existingTenants, background, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Refuses to create shards beyond {@code maxShards}; the shards of
+     * {@code existingTenants} are always opened.
+     */
+    public TenantShardedTodoRepository(Function<String, TodoRepository> shardFactory, Collection<String> existingTenants,
+                                       boolean background, int maxShards) {
+        if (maxShards < 1) {
+            throw new IllegalArgumentException("Maximum number of tenants must be positive");
+        }
+        this.shardFactory = shardFactory;
+        this.existingTenants = Set.copyOf(existingTenants);
+        this.tenants.addAll(this.existingTenants);
+        this.maxShards = maxShards;
+        List<String> tenants = List.copyOf(existingTenants);
+        if (background) {
+            Thread thread = new Thread(() -> openAll(tenants), "todo-warm-up");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            openAll(tenants);
+        }
+    }
+
+    /**
+     * Completes once the shards of the existing tenants are open, or
+     * completes exceptionally when one of them failed to open.
+     */
+    public CompletableFuture<Void> warmUp() {
+        return warmUp;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todo.repository.shards", shards, Map::size)
+                .description("Number of tenant shards")
+                .register(registry);
+        this.registry = registry;
+        shards.forEach(this::bindShard);
+    }
+
+    /**
+     * Includes the existing tenants whose shards are still being opened, so
+     * callers never take them for tenants without todos.
+     */
+    @Override
+    public Set<String> tenants() {
+        return Collections.unmodifiableSet(tenants);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return readShard().findAll();
+    }
+
+    @Override
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority) {
+        return readShard().findRecords(status, text, priority);
+    }
+
+    @Override
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority, TodoFacets facets) {
+        return readShard().findRecords(status, text, priority, facets);
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsAfter(String status, String text, Todo.Priority priority, Long afterId, int limit) {
+        return readShard().findRecordsAfter(status, text, priority, afterId, limit);
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsDue(String status, String text, Todo.Priority priority, long fromMillis, long toMillis) {
+        return readShard().findRecordsDue(status, text, priority, fromMillis, toMillis);
+    }
+
+    @Override
+    public long count(String status, String text, Todo.Priority priority) {
+        return readShard().count(status, text, priority);
+    }
+
+    @Override
+    public long version() {
+        return readShard().version();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        return shard().reserveIds(count);
+    }
+
+    @Override
+    public Optional<Todo> findById(Long id) {
+        return readShard().findById(id);
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        return shard().save(todo);
+    }
+
+    @Override
+    public List<Todo> saveAll(Iterable<Todo> entities) {
+        return shard().saveAll(entities);
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        TodoRepository shard = existingShard();
+        if (shard != null) {
+            shard.deleteById(id);
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<Long> ids) {
+        TodoRepository shard = existingShard();
+        if (shard != null) {
+            shard.deleteAllById(ids);
+        }
+    }
+
+    @Override
+    public List<TodoRecord> deleteAllById(Iterable<Long> ids, String status) {
+        TodoRepository shard = existingShard();
+        return shard == null ? List.of() : shard.deleteAllById(ids, status);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return readShard().existsById(id);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (TodoRepository shard : shards.values()) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private void openAll(List<String> tenants) {
+        long started = System.nanoTime();
+        try {
+            for (String tenant : tenants) {
+                shard(tenant);
+            }
+        } catch (RuntimeException e) {
+            warmUp.completeExceptionally(e);
+            throw e;
+        }
+        warmUp.complete(null);
+        if (!tenants.isEmpty()) {
+            logger.info("Opened {} tenant shard(s) in {} ms", tenants.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+    }
+
+    TodoRepository shard(String tenant) {
+        TodoRepository shard = shards.get(tenant);
+        return shard != null ? shard : shards.computeIfAbsent(tenant, this::open);
+    }
+
+    private TodoRepository open(String tenant) {
+        if (shards.size() >= maxShards && !existingTenants.contains(tenant)) {
+            throw new IllegalArgumentException("Cannot store todos for more than " + maxShards + " tenants");
+        }
+        TodoRepository shard = shardFactory.apply(tenant);
+        tenants.add(tenant);
+        bindShard(tenant, shard);
+        return shard;
+    }
+
+    /**
+     * Registers the meters of {@code shard}. A shard opened while the
+     * registry is being bound may be registered twice, which Micrometer
+     * ignores.
+     */
+    private void bindShard(String tenant, TodoRepository shard) {
+        MeterRegistry current = registry;
+        if (current != null && shard instanceof TaggedMeterBinder binder) {
+            binder.bindTo(current, Tags.of("tenant", tenant));
+        }
+    }
+
+    private TodoRepository shard() {
+        return shard(TenantContext.current());
+    }
+
+    /**
+     * The current tenant's shard, or {@code null} when it has none. An
+     * existing tenant's shard that is still being opened is waited for.
+     */
+    private TodoRepository existingShard() {
+        String tenant = TenantContext.current();
+        TodoRepository shard = shards.get(tenant);
+        return shard == null && existingTenants.contains(tenant) ? shard(tenant) : shard;
+    }
+
+    private TodoRepository readShard() {
+        TodoRepository shard = existingShard();
+        return shard == null ? noShard : shard;
+    }
+}
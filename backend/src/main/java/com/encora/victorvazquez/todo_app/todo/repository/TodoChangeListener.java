@@ -0,0 +1,11 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+/**
+ * Receives every mutation applied to an {@link InMemoryTodoRepository}.
+ * Callbacks run while the id's stripe lock is held, so they observe
+ * mutations of the same id in the order they were applied and must not block.
+ */
+public interface TodoChangeListener {
+    void onSave(TodoRecord todo);
+    void onDelete(Long id);
+}
@@ -0,0 +1,58 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of a todo: id, priority ordinal, done flag, three
+ * epoch-millis timestamps, the UTF-8 text, length-prefixed, and the version.
+ * The version comes last so logs and snapshots written before it existed
+ * still decode, as version 0.
+ */
+final class TodoCodec {
+    static final int FIXED_SIZE = Long.BYTES + 2 + 3 * Long.BYTES + Short.BYTES + Integer.BYTES;
+
+    private TodoCodec() {
+    }
+
+    static int encodedSize(TodoRecord todo) {
+        return FIXED_SIZE + textBytes(todo).length;
+    }
+
+    static byte[] encode(TodoRecord todo) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(todo));
+        encode(todo, buffer);
+        return buffer.array();
+    }
+
+    static void encode(TodoRecord todo, ByteBuffer buffer) {
+        byte[] text = textBytes(todo);
+        buffer.putLong(todo.id());
+        buffer.put(todo.priorityOrdinal());
+        buffer.put((byte) (todo.done() ? 1 : 0));
+        buffer.putLong(todo.creationMillis());
+        buffer.putLong(todo.dueMillis());
+        buffer.putLong(todo.doneMillis());
+        buffer.putShort((short) text.length);
+        buffer.put(text);
+        buffer.putInt(todo.version());
+    }
+
+    static TodoRecord decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        byte priority = buffer.get();
+        boolean done = buffer.get() == 1;
+        long creationMillis = buffer.getLong();
+        long dueMillis = buffer.getLong();
+        long doneMillis = buffer.getLong();
+        byte[] text = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(text);
+        int version = buffer.remaining() >= Integer.BYTES ? buffer.getInt() : 0;
+        return new TodoRecord(id, new String(text, StandardCharsets.UTF_8), priority, done, creationMillis, dueMillis, doneMillis,
+                version);
+    }
+
+    private static byte[] textBytes(TodoRecord todo) {
+        return todo.text() == null ? new byte[0] : todo.text().getBytes(StandardCharsets.UTF_8);
+    }
+}
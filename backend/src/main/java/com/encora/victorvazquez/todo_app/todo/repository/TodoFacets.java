@@ -0,0 +1,72 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Number of todos per status and priority, e.g. for the counts next to a
+ * client's filter controls. Built either from a repository's bucket counters
+ * or by {@link #add adding} records while they are filtered.
+ */
+public final class TodoFacets {
+    private static final Todo.Priority[] PRIORITIES = Todo.Priority.values();
+
+    private final long[] done = new long[PRIORITIES.length];
+    private final long[] undone = new long[PRIORITIES.length];
+
+    public void add(TodoRecord record) {
+        (record.done() ? done : undone)[record.priorityOrdinal()]++;
+    }
+
+    void add(TodoFacets other) {
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            done[i] += other.done[i];
+            undone[i] += other.undone[i];
+        }
+    }
+
+    void add(boolean isDone, Todo.Priority priority, long count) {
+        (isDone ? done : undone)[priority.ordinal()] += count;
+    }
+
+    public long count(boolean isDone, Todo.Priority priority) {
+        return (isDone ? done : undone)[priority.ordinal()];
+    }
+
+    /**
+     * Sum over the buckets matching the filters; {@code null} matches every
+     * status or priority, like the repository's {@code status} parameter.
+     */
+    public long total(String status, Todo.Priority priority) {
+        Boolean isDone = status == null ? null : status.equals("done");
+        long total = 0;
+        for (Todo.Priority candidate : PRIORITIES) {
+            if (priority == null || priority == candidate) {
+                if (isDone == null || isDone) {
+                    total += done[candidate.ordinal()];
+                }
+                if (isDone == null || !isDone) {
+                    total += undone[candidate.ordinal()];
+                }
+            }
+        }
+        return total;
+    }
+
+    public Map<Todo.Priority, Long> getDone() {
+        return toMap(done);
+    }
+
+    public Map<Todo.Priority, Long> getUndone() {
+        return toMap(undone);
+    }
+
+    private static Map<Todo.Priority, Long> toMap(long[] counts) {
+        Map<Todo.Priority, Long> map = new EnumMap<>(Todo.Priority.class);
+        for (Todo.Priority priority : PRIORITIES) {
+            map.put(priority, counts[priority.ordinal()]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,94 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+
+/**
+ * Immutable storage row for a todo: primitive id, priority ordinal and
+ * epoch-millis timestamps ({@link #NO_DATE} when absent). Todo dates are
+ * wall-clock times in {@link #ZONE}, the zone {@link Todo#setDone} stamps
+ * with, so the millis are real instants and compare with the system clock. Repositories keep
+ * these and only materialize {@link Todo} objects for what they return.
+ * {@code version} counts the writes to the todo, starting at 1; repositories
+ * compare it against {@link Todo#getVersion()} before replacing a row.
+ */
+public record TodoRecord(
+        long id,
+        String text,
+        byte priorityOrdinal,
+        boolean done,
+        long creationMillis,
+        long dueMillis,
+        long doneMillis,
+        int version
+) {
+    public static final long NO_DATE = Long.MIN_VALUE;
+    public static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final Todo.Priority[] PRIORITIES = Todo.Priority.values();
+    private static final ZoneRules RULES = ZONE.getRules();
+    private static final ZoneOffset FIXED_OFFSET = RULES.isFixedOffset() ? RULES.getOffset(Instant.EPOCH) : null;
+
+    /**
+     * Converts a todo that already has an id into its row at {@code version}.
+     * A todo without a creation date is stamped with the current time, so new
+     * todos do not need to allocate one up front.
+     */
+    public static TodoRecord from(Todo todo, int version) {
+        long creationMillis = todo.getCreationDate() == null
+                ? System.currentTimeMillis()
+                : toEpochMillis(todo.getCreationDate());
+        return new TodoRecord(todo.getId(), todo.getText(), (byte) todo.getPriority().ordinal(), todo.isDone(),
+                creationMillis, toEpochMillis(todo.getDueDate()), toEpochMillis(todo.getDoneDate()), version);
+    }
+
+    /**
+     * The version {@code todo} gets when it replaces a row stored at
+     * {@code storedVersion}, 0 meaning no row. Fails when the todo was read
+     * at a different version than the stored one.
+     */
+    static int nextVersion(Todo todo, int storedVersion) {
+        Integer expected = todo.getVersion();
+        if (expected != null && expected != storedVersion) {
+            throw new TodoVersionConflictException(todo.getId(), expected, storedVersion);
+        }
+        return storedVersion + 1;
+    }
+
+    public Todo toTodo() {
+        Todo todo = new Todo(id, text, priority(), fromEpochMillis(dueMillis), done,
+                fromEpochMillis(doneMillis), fromEpochMillis(creationMillis));
+        todo.setVersion(version);
+        return todo;
+    }
+
+    public Todo.Priority priority() {
+        return PRIORITIES[priorityOrdinal];
+    }
+
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return NO_DATE;
+        }
+        return FIXED_OFFSET != null
+                ? dateTime.toInstant(FIXED_OFFSET).toEpochMilli()
+                : dateTime.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long epochMillis) {
+        return epochMillis == NO_DATE ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE);
+    }
+
+    /**
+     * Shifts an instant to the millis of its wall-clock time in {@link #ZONE}
+     * counted from 1970-01-01T00:00, for formatting without a {@code LocalDateTime}.
+     */
+    public static long toLocalMillis(long epochMillis) {
+        ZoneOffset offset = FIXED_OFFSET != null ? FIXED_OFFSET : RULES.getOffset(Instant.ofEpochMilli(epochMillis));
+        return epochMillis + offset.getTotalSeconds() * 1000L;
+    }
+}
@@ -1,9 +1,97 @@
 package com.encora.victorvazquez.todo_app.todo.repository;
 
 import com.encora.victorvazquez.todo_app.common.BaseRepository;
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
 import com.encora.victorvazquez.todo_app.todo.Todo;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public interface TodoRepository extends BaseRepository<Todo, Long> {
-    List<Todo> findAll(String status, String text, Todo.Priority priority);
+    List<TodoRecord> findRecords(String status, String text, Todo.Priority priority);
+    List<TodoRecord> findRecordsAfter(String status, String text, Todo.Priority priority, Long afterId, int limit);
+    long count(String status, String text, Todo.Priority priority);
+    long version();
+
+    /**
+     * Reserves {@code count} consecutive ids for todos the caller saves
+     * later and returns the first one.
+     */
+    long reserveIds(int count);
+
+    /**
+     * Deletes those of {@code ids} whose stored status still matches
+     * {@code status} ("done", "undone" or {@code null} for any), checked
+     * while the todo is locked, and returns the rows it deleted.
+     */
+    List<TodoRecord> deleteAllById(Iterable<Long> ids, String status);
+
+    /**
+     * Records due at or after {@code fromMillis} and before {@code toMillis}
+     * (UTC epoch millis) that match the other filters, in id order. Todos
+     * without a due date never match. The default scans every record.
+     */
+    default List<TodoRecord> findRecordsDue(String status, String text, Todo.Priority priority, long fromMillis, long toMillis) {
+        List<TodoRecord> result = new ArrayList<>();
+        for (TodoRecord record : findRecords(status, text, priority)) {
+            if (record.dueMillis() != TodoRecord.NO_DATE && record.dueMillis() >= fromMillis && record.dueMillis() < toMillis) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts of every todo per status and priority. {@link #count} is
+     * answered from live per-bucket counters without text, so this reads
+     * six counters instead of scanning.
+     */
+    default TodoFacets facets() {
+        TodoFacets facets = new TodoFacets();
+        for (boolean done : new boolean[] {true, false}) {
+            for (Todo.Priority priority : Todo.Priority.values()) {
+                facets.add(done, priority, count(done ? "done" : "undone", null, priority));
+            }
+        }
+        return facets;
+    }
+
+    /**
+     * Like {@link #findRecords(String, String, Todo.Priority)}, and adds every
+     * todo matching {@code text}, whatever its status and priority, to
+     * {@code facets} in the same pass. Without text the facets are read from
+     * {@link #facets()}.
+     */
+    default List<TodoRecord> findRecords(String status, String text, Todo.Priority priority, TodoFacets facets) {
+        if (text == null) {
+            facets.add(facets());
+            return findRecords(status, null, priority);
+        }
+        Boolean done = status == null ? null : status.equals("done");
+        List<TodoRecord> result = new ArrayList<>();
+        for (TodoRecord record : findRecords(null, text, null)) {
+            facets.add(record);
+            if ((done == null || record.done() == done) && (priority == null || record.priority() == priority)) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tenants this repository holds todos for. Callers that work across
+     * tenants, like the due date scheduler, run once per tenant.
+     */
+    default Set<String> tenants() {
+        return Set.of(TenantContext.DEFAULT_TENANT);
+    }
+
+    default List<Todo> findAll(String status, String text, Todo.Priority priority) {
+        List<TodoRecord> records = findRecords(status, text, priority);
+        List<Todo> todos = new ArrayList<>(records.size());
+        for (TodoRecord record : records) {
+            todos.add(record.toTodo());
+        }
+        return todos;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+/**
+ * Thrown when a todo is saved at a version that is no longer the stored one,
+ * i.e. someone else wrote it since it was read. Nothing is written.
+ */
+public class TodoVersionConflictException extends RuntimeException {
+    private final long id;
+    private final int expectedVersion;
+    private final int actualVersion;
+
+    public TodoVersionConflictException(long id, int expectedVersion, int actualVersion) {
+        super("Todo " + id + " is at version " + actualVersion + ", not " + expectedVersion);
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public int getActualVersion() {
+        return actualVersion;
+    }
+}
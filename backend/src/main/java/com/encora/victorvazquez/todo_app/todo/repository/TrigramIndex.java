@@ -0,0 +1,104 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from lower-cased character trigrams to the ids of the todos
+ * whose text contains them. Texts are capped at 120 characters, so a todo
+ * contributes at most 118 postings and updates stay cheap.
+ */
+class TrigramIndex {
+    static final int GRAM = 3;
+
+    private final Map<Long, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final Map<Long, String> indexedTexts = new ConcurrentHashMap<>();
+
+    void put(Long id, String text) {
+        String lower = text == null ? "" : text.toLowerCase(Locale.ROOT);
+        String previous = indexedTexts.put(id, lower);
+        if (lower.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            removePostings(id, previous, lower);
+        }
+        for (int i = 0; i + GRAM <= lower.length(); i++) {
+            postings.compute(trigram(lower, i), (key, ids) -> {
+                Set<Long> result = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    void remove(Long id) {
+        String previous = indexedTexts.remove(id);
+        if (previous != null) {
+            removePostings(id, previous, "");
+        }
+    }
+
+    /**
+     * Returns a superset of the ids whose text contains {@code lowerNeedle},
+     * or {@code null} when the needle is too short to be narrowed by trigrams.
+     */
+    Set<Long> candidates(String lowerNeedle) {
+        if (lowerNeedle.length() < GRAM) {
+            return null;
+        }
+        Set<Long> smallest = null;
+        for (int i = 0; i + GRAM <= lowerNeedle.length(); i++) {
+            Set<Long> ids = postings.get(trigram(lowerNeedle, i));
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    int trigramCount() {
+        return postings.size();
+    }
+
+    int indexedCount() {
+        return indexedTexts.size();
+    }
+
+    static boolean containsIgnoreCase(String text, String lowerNeedle) {
+        if (text == null) {
+            return false;
+        }
+        int last = text.length() - lowerNeedle.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, lowerNeedle, 0, lowerNeedle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removePostings(Long id, String previous, String current) {
+        for (int i = 0; i + GRAM <= previous.length(); i++) {
+            if (current.contains(previous.substring(i, i + GRAM))) {
+                continue;
+            }
+            postings.computeIfPresent(trigram(previous, i), (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+                | ((long) text.charAt(offset + 1) << 16)
+                | text.charAt(offset + 2);
+    }
+}
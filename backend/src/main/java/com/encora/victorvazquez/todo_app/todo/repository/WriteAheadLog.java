@@ -0,0 +1,237 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, segmented log with group commit. Appenders enqueue records
+ * and a single writer thread drains whatever has accumulated, writes it with
+ * one channel write and makes it durable with one {@code force}, then wakes
+ * every appender whose record was in the batch.
+ */
+class WriteAheadLog implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_BATCH = 4096;
+
+    private record Pending(long sequence, byte[] payload) {
+    }
+
+    private static final Pending SHUTDOWN = new Pending(-1, null);
+
+    private final Path directory;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private final Thread writer;
+
+    private long nextSequence = 1;
+    private volatile long durableSequence;
+    private volatile IOException failure;
+    private long segment;
+    private FileChannel channel;
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(1 << 20);
+
+    WriteAheadLog(Path directory, long firstSegment) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        openSegment(firstSegment);
+        writer = new Thread(this::runWriter, "todo-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    static List<Long> segments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    static boolean replay(Path directory, long segment, Consumer<ByteBuffer> consumer) throws IOException {
+        return RecordFiles.readFrames(segmentPath(directory, segment), consumer);
+    }
+
+    /**
+     * Enqueues a record and returns its sequence number without waiting for
+     * it to reach the disk.
+     */
+    long append(byte[] payload) {
+        appendLock.lock();
+        try {
+            long sequence = nextSequence++;
+            queue.add(new Pending(sequence, payload));
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    long lastAppendedSequence() {
+        appendLock.lock();
+        try {
+            return nextSequence - 1;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    long pendingRecords() {
+        return lastAppendedSequence() - durableSequence;
+    }
+
+    void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        durableLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log is unavailable", failure);
+                }
+                durableAdvanced.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write-ahead log", e);
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Returns the number of
+     * the closed segment; every record appended afterwards lands in a later one.
+     */
+    long rotate() throws IOException {
+        channelLock.lock();
+        try {
+            long closedSegment = segment;
+            channel.force(false);
+            channel.close();
+            openSegment(closedSegment + 1);
+            return closedSegment;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    void deleteSegmentsUpTo(long lastSegment) throws IOException {
+        for (long existing : segments(directory)) {
+            if (existing <= lastSegment) {
+                Files.deleteIfExists(segmentPath(directory, existing));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        queue.add(SHUTDOWN);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channelLock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            running = !batch.remove(SHUTDOWN);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                writeBatch(batch);
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+            markDurable(batch.get(batch.size() - 1).sequence());
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        int size = 0;
+        for (Pending pending : batch) {
+            size += RecordFiles.HEADER_SIZE + pending.payload().length;
+        }
+        if (writeBuffer.capacity() < size) {
+            writeBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+        }
+        writeBuffer.clear();
+        for (Pending pending : batch) {
+            RecordFiles.writeFrame(writeBuffer, pending.payload());
+        }
+        writeBuffer.flip();
+        channelLock.lock();
+        try {
+            while (writeBuffer.hasRemaining()) {
+                channel.write(writeBuffer);
+            }
+            channel.force(false);
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    private void markDurable(long sequence) {
+        durableLock.lock();
+        try {
+            durableSequence = sequence;
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        segment = number;
+        channel = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,295 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Durable todo store: serves every read from an {@link InMemoryTodoRepository}
+ * and appends each mutation to a group-committed write-ahead log before the
+ * call returns. The full map is periodically written to a binary snapshot so
+ * recovery only replays the log tail written since the last snapshot.
+ *
+ * <p>Reserved ids are logged as the id past the reservation before they are
+ * handed out, and every new segment starts with the current one, so ids a
+ * follower leased are not handed out again after a restart.
+ */
+public class WriteAheadLogTodoRepository implements TodoRepository, TaggedMeterBinder, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLogTodoRepository.class);
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final byte OP_SAVE = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_RESERVE = 3;
+
+    private final InMemoryTodoRepository delegate = new InMemoryTodoRepository();
+    private final Path directory;
+    private final WriteAheadLog log;
+    private final ScheduledExecutorService snapshotScheduler;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    public WriteAheadLogTodoRepository(Path directory, Duration snapshotInterval) throws IOException {
+        this.directory = directory;
+        long started = System.nanoTime();
+        long lastSegment = recover();
+        logger.info("Recovered {} todos from {} in {} ms", delegate.count(null, null, null), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        this.log = new WriteAheadLog(directory, lastSegment + 1);
+        delegate.addChangeListener(new TodoChangeListener() {
+            @Override
+            public void onSave(TodoRecord todo) {
+                ByteBuffer record = ByteBuffer.allocate(1 + TodoCodec.encodedSize(todo));
+                record.put(OP_SAVE);
+                TodoCodec.encode(todo, record);
+                log.append(record.array());
+            }
+
+            @Override
+            public void onDelete(Long id) {
+                log.append(ByteBuffer.allocate(1 + Long.BYTES).put(OP_DELETE).putLong(id).array());
+            }
+        });
+
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "todo-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = snapshotInterval.toMillis();
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry, Tags tags) {
+        delegate.bindTo(registry, tags);
+        Gauge.builder("todo.repository.wal.pending", log, WriteAheadLog::pendingRecords)
+                .description("Records appended to the write-ahead log but not yet durable")
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * Listens to mutations after they are appended to the log; records
+     * recovered on startup are not reported.
+     */
+    public void addChangeListener(TodoChangeListener listener) {
+        delegate.addChangeListener(listener);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority) {
+        return delegate.findRecords(status, text, priority);
+    }
+
+    @Override
+    public List<TodoRecord> findRecords(String status, String text, Todo.Priority priority, TodoFacets facets) {
+        return delegate.findRecords(status, text, priority, facets);
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsAfter(String status, String text, Todo.Priority priority, Long afterId, int limit) {
+        return delegate.findRecordsAfter(status, text, priority, afterId, limit);
+    }
+
+    @Override
+    public List<TodoRecord> findRecordsDue(String status, String text, Todo.Priority priority, long fromMillis, long toMillis) {
+        return delegate.findRecordsDue(status, text, priority, fromMillis, toMillis);
+    }
+
+    @Override
+    public long count(String status, String text, Todo.Priority priority) {
+        return delegate.count(status, text, priority);
+    }
+
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+
+    @Override
+    public long reserveIds(int count) {
+        long first = delegate.reserveIds(count);
+        log.append(reserveRecord(first + count));
+        log.awaitDurable(log.lastAppendedSequence());
+        return first;
+    }
+
+    @Override
+    public Optional<Todo> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Todo save(Todo todo) {
+        Todo saved = delegate.save(todo);
+        log.awaitDurable(log.lastAppendedSequence());
+        return saved;
+    }
+
+    @Override
+    public List<Todo> saveAll(Iterable<Todo> entities) {
+        List<Todo> saved = delegate.saveAll(entities);
+        log.awaitDurable(log.lastAppendedSequence());
+        return saved;
+    }
+
+    @Override
+    public void deleteAllById(Iterable<Long> ids) {
+        delegate.deleteAllById(ids);
+        log.awaitDurable(log.lastAppendedSequence());
+    }
+
+    @Override
+    public List<TodoRecord> deleteAllById(Iterable<Long> ids, String status) {
+        List<TodoRecord> deleted = delegate.deleteAllById(ids, status);
+        log.awaitDurable(log.lastAppendedSequence());
+        return deleted;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        delegate.deleteById(id);
+        log.awaitDurable(log.lastAppendedSequence());
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return delegate.existsById(id);
+    }
+
+    /**
+     * Writes every todo to a new snapshot file and drops the log segments it
+     * supersedes. The snapshot is fuzzy: todos changed while it is written are
+     * also in the new log segment, and replaying them is idempotent.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long coveredSegment = log.rotate();
+            log.append(reserveRecord(delegate.nextId()));
+            Path target = snapshotPath(coveredSegment);
+            Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+                for (TodoRecord todo : delegate.records()) {
+                    byte[] payload = TodoCodec.encode(todo);
+                    if (buffer.remaining() < RecordFiles.HEADER_SIZE + payload.length) {
+                        flush(channel, buffer);
+                    }
+                    RecordFiles.writeFrame(buffer, payload);
+                }
+                flush(channel, buffer);
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (long existing : snapshots()) {
+                if (existing < coveredSegment) {
+                    Files.deleteIfExists(snapshotPath(existing));
+                }
+            }
+            log.awaitDurable(log.lastAppendedSequence());
+            log.deleteSegmentsUpTo(coveredSegment);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        snapshotScheduler.shutdownNow();
+        snapshot();
+        log.close();
+    }
+
+    private long recover() throws IOException {
+        Files.createDirectories(directory);
+        long lastSegment = 0;
+        List<Long> snapshots = snapshots();
+        if (!snapshots.isEmpty()) {
+            lastSegment = snapshots.get(snapshots.size() - 1);
+            if (!RecordFiles.readFrames(snapshotPath(lastSegment), buffer -> delegate.put(TodoCodec.decode(buffer)))) {
+                throw new IOException("Snapshot " + snapshotPath(lastSegment) + " is corrupt");
+            }
+        }
+        for (long segment : WriteAheadLog.segments(directory)) {
+            if (segment <= lastSegment) {
+                continue;
+            }
+            if (!WriteAheadLog.replay(directory, segment, this::apply)) {
+                logger.warn("Ignoring torn record at the end of write-ahead log segment {}", segment);
+            }
+            lastSegment = segment;
+        }
+        return lastSegment;
+    }
+
+    private void apply(ByteBuffer record) {
+        byte op = record.get();
+        if (op == OP_SAVE) {
+            delegate.put(TodoCodec.decode(record));
+        } else if (op == OP_DELETE) {
+            delegate.deleteById(record.getLong());
+        } else {
+            delegate.advanceNextId(record.getLong());
+        }
+    }
+
+    private static byte[] reserveRecord(long nextId) {
+        return ByteBuffer.allocate(1 + Long.BYTES).put(OP_RESERVE).putLong(nextId).array();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to write todo snapshot", e);
+        }
+    }
+
+    private List<Long> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
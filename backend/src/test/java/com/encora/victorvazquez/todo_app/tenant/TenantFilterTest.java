@@ -0,0 +1,33 @@
+package com.encora.victorvazquez.todo_app.tenant;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class TenantFilterTest {
+
+    private static int status(TenantFilter filter, String tenant) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/todos");
+        if (tenant != null) {
+            request.addHeader(TenantContext.HEADER, tenant);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    @Test
+    void testOnlyAllowedTenantsGetThrough() throws Exception {
+        TenantFilter filter = new TenantFilter("team-a, team-b");
+
+        assertEquals(200, status(filter, "team-a"));
+        assertEquals(200, status(filter, "team-b"));
+        assertEquals(200, status(filter, null));
+        assertEquals(403, status(filter, "team-c"));
+        assertEquals(400, status(filter, "../etc"));
+        assertEquals(200, status(new TenantFilter(""), "team-c"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DueDateSchedulerTest {
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void testTicksFireDueSoonAndOverdueOnce() {
+        List<String> events = new ArrayList<>();
+        TodoEventBus eventBus = new TodoEventBus() {
+            @Override
+            public void publish(TodoEvent.Type type, Todo todo) {
+                events.add(type + ":" + todo.getText());
+            }
+        };
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        long start = System.currentTimeMillis();
+        try (DueDateScheduler scheduler = new DueDateScheduler(repository, eventBus, Duration.ofHours(1), Duration.ofHours(1))) {
+            repository.save(new Todo("Report", Todo.Priority.HIGH, TodoRecord.fromEpochMillis(start + 10 * MINUTE)));
+            repository.save(new Todo("Groceries", Todo.Priority.LOW, TodoRecord.fromEpochMillis(start + 120 * MINUTE)));
+            Todo done = new Todo("Call mom", Todo.Priority.LOW, TodoRecord.fromEpochMillis(start + 5 * MINUTE));
+            done.setDone(true);
+            repository.save(done);
+            repository.save(new Todo("Someday", Todo.Priority.LOW, null));
+
+            scheduler.tick(start + 11 * MINUTE);
+            assertEquals(List.of("OVERDUE:Report"), events);
+
+            scheduler.tick(start + 65 * MINUTE);
+            assertEquals(List.of("OVERDUE:Report", "DUE_SOON:Groceries"), events);
+
+            scheduler.tick(start + 65 * MINUTE);
+            scheduler.tick(start + 121 * MINUTE);
+            assertEquals(List.of("OVERDUE:Report", "DUE_SOON:Groceries", "OVERDUE:Groceries"), events);
+        }
+    }
+
+    @Test
+    void testDueDatesAreWallClockTimesOfTheServerZone() {
+        List<String> events = new ArrayList<>();
+        TodoEventBus eventBus = new TodoEventBus() {
+            @Override
+            public void publish(TodoEvent.Type type, Todo todo) {
+                events.add(type + ":" + todo.getText());
+            }
+        };
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        try (DueDateScheduler scheduler = new DueDateScheduler(repository, eventBus, Duration.ofHours(1), Duration.ofHours(1))) {
+            repository.save(new Todo("Standup", Todo.Priority.HIGH, LocalDateTime.now(TodoRecord.ZONE).plusMinutes(90)));
+
+            scheduler.tick(System.currentTimeMillis() + 31 * MINUTE);
+            assertEquals(List.of("DUE_SOON:Standup"), events);
+        }
+    }
+
+    @Test
+    void testTodosSavedInsideTheWindowAreDueSoonRightAway() {
+        List<String> events = new ArrayList<>();
+        TodoEventBus eventBus = new TodoEventBus() {
+            @Override
+            public void publish(TodoEvent.Type type, Todo todo) {
+                if (type == TodoEvent.Type.DUE_SOON) {
+                    events.add(type + ":" + todo.getText());
+                }
+            }
+        };
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        TodoService service = new TodoService(repository, new SimpleMeterRegistry(), eventBus);
+        long start = System.currentTimeMillis();
+        try (DueDateScheduler scheduler = new DueDateScheduler(repository, eventBus, Duration.ofHours(1), Duration.ofHours(1))) {
+            Todo report = service.createTodo(new Todo("Report", Todo.Priority.HIGH, TodoRecord.fromEpochMillis(start + 30 * MINUTE)));
+            Todo groceries = service.createTodo(new Todo("Groceries", Todo.Priority.LOW, TodoRecord.fromEpochMillis(start + 180 * MINUTE)));
+            service.createTodo(new Todo("Yesterday", Todo.Priority.LOW, TodoRecord.fromEpochMillis(start - 24 * 60 * MINUTE)));
+            assertEquals(List.of("DUE_SOON:Report"), events);
+
+            service.updateTodo(report.getId(), new Todo("Report v2", Todo.Priority.HIGH, report.getDueDate()));
+            service.updateTodo(groceries.getId(), new Todo("Groceries", Todo.Priority.LOW, TodoRecord.fromEpochMillis(start + 20 * MINUTE)));
+            assertEquals(List.of("DUE_SOON:Report", "DUE_SOON:Groceries"), events);
+
+            service.markAsDone(report.getId());
+            service.markAsUndone(report.getId());
+            assertEquals(List.of("DUE_SOON:Report", "DUE_SOON:Groceries", "DUE_SOON:Report v2"), events);
+
+            scheduler.tick(start + MINUTE);
+            assertEquals(3, events.size());
+        }
+    }
+}
@@ -14,10 +14,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
 
+import com.encora.victorvazquez.todo_app.todo.repository.TodoVersionConflictException;
+
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(TodoController.class)
 public class TodoControllerIntegrationTest {
@@ -74,4 +78,26 @@ public class TodoControllerIntegrationTest {
         assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
         assertEquals(MediaType.APPLICATION_JSON_VALUE, result.getResponse().getContentType());
     }
+
+    @Test
+    void testUpdateTodoWithStaleIfMatchReturnsConflict() throws Exception {
+        String updateJson = """
+            {
+                "text": "Updated Todo",
+                "priority": "MEDIUM"
+            }""";
+
+        when(todoService.updateTodo(eq(1L), argThat(todo -> Integer.valueOf(3).equals(todo.getVersion()))))
+            .thenThrow(new TodoVersionConflictException(1L, 3, 4));
+
+        RequestBuilder request = MockMvcRequestBuilders
+            .put("/todos/1")
+            .header("If-Match", "\"3\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(updateJson);
+
+        MvcResult result = mvc.perform(request).andReturn();
+        assertEquals(HttpStatus.CONFLICT.value(), result.getResponse().getStatus());
+        assertEquals("\"4\"", result.getResponse().getHeader("ETag"));
+    }
 }
@@ -4,13 +4,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
 import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.TenantShardedTodoRepository;
 
 public class TodoControllerTest {
     private TodoController createController() {
@@ -49,7 +53,7 @@ public class TodoControllerTest {
         controller.createTodo(todo1);
         controller.createTodo(todo2);
 
-        ResponseEntity<TodoService.PageResponse> response = controller.getAllTodos(0, 10, null, null, null, null);
+        ResponseEntity<TodoService.PageResponse> response = controller.getAllTodos(0, 10, null, null, null, null, null, null, null, null);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(2, response.getBody().getTotalItems());
@@ -84,4 +88,102 @@ public class TodoControllerTest {
         assertTrue(!response.getBody().isDone());
     }
 
+    @Test
+    void testSaveTodosBatch() {
+        TodoController controller = createController();
+        Todo existing = controller.createTodo(new Todo("Existing", Todo.Priority.LOW, null)).getBody();
+        assertNotNull(existing);
+        Todo update = new Todo("Existing renamed", Todo.Priority.HIGH, null);
+        update.setId(existing.getId());
+        Todo missing = new Todo("Missing", Todo.Priority.LOW, null);
+        missing.setId(999L);
+
+        ResponseEntity<List<TodoService.BatchResult>> response = controller.saveTodos(List.of(
+                new Todo("New one", Todo.Priority.MEDIUM, null), update, missing));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<TodoService.BatchResult> results = response.getBody();
+        assertNotNull(results);
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertNotNull(results.get(0).getId());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("Existing renamed", results.get(1).getTodo().getText());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(999L, results.get(2).getId());
+        assertEquals(2, controller.getAllTodos(0, 10, null, null, null, null, null, null, null, null).getBody().getTotalItems());
+    }
+
+    @Test
+    void testMarkAllAsDoneAndDeleteDone() {
+        TodoController controller = createController();
+        Todo first = controller.createTodo(new Todo("First", Todo.Priority.LOW, null)).getBody();
+        Todo second = controller.createTodo(new Todo("Second", Todo.Priority.LOW, null)).getBody();
+        controller.createTodo(new Todo("Third", Todo.Priority.LOW, null));
+        assertNotNull(first);
+        assertNotNull(second);
+
+        List<TodoService.BatchResult> doneResults = controller.markAllAsDone(List.of(first.getId(), second.getId(), 999L)).getBody();
+        assertNotNull(doneResults);
+        assertTrue(doneResults.get(0).getTodo().isDone());
+        assertTrue(doneResults.get(1).getTodo().isDone());
+        assertFalse(doneResults.get(2).isSuccess());
+
+        List<TodoService.BatchResult> deleteResults = controller.deleteTodos("done").getBody();
+        assertNotNull(deleteResults);
+        assertEquals(2, deleteResults.size());
+        TodoService.PageResponse remaining = controller.getAllTodos(0, 10, null, null, null, null, null, null, null, null).getBody();
+        assertNotNull(remaining);
+        assertEquals(1, remaining.getTotalItems());
+        assertEquals("Third", remaining.getData().get(0).getText());
+    }
+
+    @Test
+    void testGetAllTodosReturnsNotModifiedForCurrentETag() {
+        TodoController controller = createController();
+        controller.createTodo(new Todo("Test Todo", Todo.Priority.LOW, null));
+
+        ResponseEntity<TodoService.PageResponse> first = controller.getAllTodos(0, 10, null, null, null, null, null, null, null, null);
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<TodoService.PageResponse> unchanged = controller.getAllTodos(0, 10, null, null, null, null, null, null, null, etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+
+        controller.createTodo(new Todo("Another Todo", Todo.Priority.LOW, null));
+        ResponseEntity<TodoService.PageResponse> changed = controller.getAllTodos(0, 10, null, null, null, null, null, null, null, etag);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotNull(changed.getBody());
+        assertEquals(2, changed.getBody().getTotalItems());
+    }
+
+    @Test
+    void testGetAllTodosETagDependsOnTheTenant() {
+        TodoController controller = new TodoController(new TodoService(new TenantShardedTodoRepository(tenant -> new InMemoryTodoRepository())));
+        controller.createTodo(new Todo("Test Todo", Todo.Priority.LOW, null));
+        TenantContext.call("other", () -> controller.createTodo(new Todo("Other Todo", Todo.Priority.LOW, null)));
+
+        ResponseEntity<TodoService.PageResponse> first = controller.getAllTodos(0, 10, null, null, null, null, null, null, null, null);
+        String etag = first.getHeaders().getETag();
+        assertEquals(List.of(TenantContext.HEADER), first.getHeaders().getVary());
+
+        ResponseEntity<TodoService.PageResponse> other = TenantContext.call("other",
+                () -> controller.getAllTodos(0, 10, null, null, null, null, null, null, null, etag));
+        assertEquals(HttpStatus.OK, other.getStatusCode());
+        assertNotEquals(etag, other.getHeaders().getETag());
+        assertEquals(List.of(TenantContext.HEADER), other.getHeaders().getVary());
+    }
+
+    @Test
+    void testGetAllTodosETagChangesAfterARestart() {
+        TodoController before = createController();
+        before.createTodo(new Todo("Test Todo", Todo.Priority.LOW, null));
+        String etag = before.getAllTodos(0, 10, null, null, null, null, null, null, null, null).getHeaders().getETag();
+
+        TodoController after = createController();
+        after.createTodo(new Todo("Other Todo", Todo.Priority.LOW, null));
+        ResponseEntity<TodoService.PageResponse> response = after.getAllTodos(0, 10, null, null, null, null, null, null, null, etag);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("Other Todo", response.getBody().getData().get(0).getText());
+    }
 }
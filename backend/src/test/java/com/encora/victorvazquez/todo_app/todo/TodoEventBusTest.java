@@ -0,0 +1,63 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TodoEventBusTest {
+
+    private static TodoService createService(TodoEventBus eventBus) {
+        return new TodoService(new InMemoryTodoRepository(), new SimpleMeterRegistry(), eventBus);
+    }
+
+    @Test
+    void testSubscriberKeepsUpWithMutations() {
+        TodoEventBus eventBus = new TodoEventBus(JsonMapper.builder().findAndAddModules().build(), Runnable::run, 4, 60_000L);
+        TodoService service = createService(eventBus);
+        service.subscribeToEvents();
+
+        for (int i = 0; i < 20; i++) {
+            Todo todo = service.createTodo(new Todo("Todo " + i, Todo.Priority.LOW, null));
+            service.markAsDone(todo.getId());
+            service.deleteTodo(todo.getId());
+        }
+
+        assertEquals(1, eventBus.subscriberCount());
+    }
+
+    @Test
+    void testSlowSubscriberIsDisconnected() {
+        List<Runnable> stalled = new ArrayList<>();
+        TodoEventBus eventBus = new TodoEventBus(JsonMapper.builder().findAndAddModules().build(), stalled::add, 2, 60_000L);
+        TodoService service = createService(eventBus);
+        service.subscribeToEvents();
+
+        service.createTodo(new Todo("First", Todo.Priority.LOW, null));
+        service.createTodo(new Todo("Second", Todo.Priority.LOW, null));
+        assertEquals(1, eventBus.subscriberCount());
+        assertEquals(1, stalled.size());
+
+        service.createTodo(new Todo("Third", Todo.Priority.LOW, null));
+        assertEquals(0, eventBus.subscriberCount());
+    }
+
+    @Test
+    void testSubscriberIsDisconnectedWhenTheExecutorIsSaturated() {
+        TodoEventBus eventBus = new TodoEventBus(JsonMapper.builder().findAndAddModules().build(), task -> {
+            throw new RejectedExecutionException("saturated");
+        }, 4, 60_000L);
+        TodoService service = createService(eventBus);
+        service.subscribeToEvents();
+
+        service.createTodo(new Todo("First", Todo.Priority.LOW, null));
+        assertEquals(0, eventBus.subscriberCount());
+        assertEquals(1, service.getAllTodos(0, 10, null, null, null, null).getTotalItems());
+    }
+}
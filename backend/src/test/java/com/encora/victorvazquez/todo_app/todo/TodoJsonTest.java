@@ -0,0 +1,63 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+public class TodoJsonTest {
+
+    private static final SimpleModule TODO_JSON = new SimpleModule()
+            .addSerializer(new TodoJson.TodoSerializer())
+            .addSerializer(new TodoJson.PageResponseSerializer());
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static TodoService.PageResponse page() {
+        TodoService service = new TodoService(new InMemoryTodoRepository());
+        service.createTodo(new Todo("Buy \"milk\" ✓\n", Todo.Priority.HIGH, LocalDateTime.of(2025, 1, 1, 0, 0)));
+        Todo done = service.createTodo(new Todo("Write report", Todo.Priority.LOW, LocalDateTime.of(10000, 6, 1, 8, 30, 15, 120_000_000)));
+        service.markAsDone(done.getId());
+        service.createTodo(new Todo("Call mom", Todo.Priority.MEDIUM, LocalDateTime.of(1999, 12, 31, 23, 59, 59, 1_000_000)));
+        return service.getAllTodos(0, 3, "priority_desc", null, null, null);
+    }
+
+    @Test
+    void testWritesSameJsonAsBeanSerializer() throws Exception {
+        ObjectMapper reflective = builder().build();
+        ObjectMapper handWritten = builder().modulesToInstall(TODO_JSON).build();
+        TodoService.PageResponse page = page();
+        Todo todo = new Todo(7L, "Unsaved", null, null, false, null, LocalDateTime.of(2025, 3, 1, 9, 30, 0, 123_456_789));
+
+        assertEquals(reflective.writeValueAsString(page), handWritten.writeValueAsString(page));
+        assertEquals(reflective.writeValueAsString(page), handWritten.writeValueAsString(page));
+        assertEquals(reflective.writeValueAsString(page.getData()), handWritten.writeValueAsString(page.getData()));
+        assertEquals(reflective.writeValueAsString(todo), handWritten.writeValueAsString(todo));
+        assertEquals(reflective.writeValueAsString(new TodoService.PageResponse(List.of(todo), 1)),
+                handWritten.writeValueAsString(new TodoService.PageResponse(List.of(todo), 1)));
+        assertEquals(reflective.writerWithDefaultPrettyPrinter().writeValueAsString(page),
+                handWritten.writerWithDefaultPrettyPrinter().writeValueAsString(page));
+    }
+
+    @Test
+    void testWritesSameTreeInSmileAndWithTimestamps() throws Exception {
+        TodoService.PageResponse page = page();
+        ObjectMapper json = builder().build();
+        ObjectMapper smile = builder().factory(new SmileFactory()).modulesToInstall(TODO_JSON).build();
+        assertEquals(json.writeValueAsString(page), json.writeValueAsString(smile.readTree(smile.writeValueAsBytes(page))));
+
+        ObjectMapper reflectiveTimestamps = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper handWrittenTimestamps = Jackson2ObjectMapperBuilder.json().modulesToInstall(TODO_JSON).build();
+        assertEquals(reflectiveTimestamps.writeValueAsString(page), handWrittenTimestamps.writeValueAsString(page));
+    }
+}
@@ -0,0 +1,355 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+import com.encora.victorvazquez.todo_app.todo.repository.TodoRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TodoServiceTest {
+    private static final List<String> SORTS = List.of(
+        "priority_asc", "priority_desc", "duedate_asc", "duedate_desc",
+        "priority_asc-duedate_desc", "duedate_asc-priority_desc"
+    );
+
+    private TodoService createService(int todos) {
+        TodoService service = new TodoService(new InMemoryTodoRepository());
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < todos; i++) {
+            Todo.Priority priority = Todo.Priority.values()[random.nextInt(3)];
+            LocalDateTime dueDate = random.nextInt(4) == 0 ? null : base.plusDays(random.nextInt(30));
+            service.createTodo(new Todo("Todo " + i, priority, dueDate));
+        }
+        return service;
+    }
+
+    private static List<Long> ids(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).collect(Collectors.toList());
+    }
+
+    private static Comparator<Todo> expectedComparator(String sortBy) {
+        Comparator<Todo> comparator = (t1, t2) -> 0;
+        for (String criteria : sortBy.split("-")) {
+            boolean ascending = criteria.endsWith("_asc");
+            Comparator<Todo> next;
+            if (criteria.startsWith("priority")) {
+                next = Comparator.comparing(todo -> 3 - todo.getPriority().ordinal());
+                next = ascending ? next : next.reversed();
+            } else {
+                next = ascending
+                        ? Comparator.comparing(Todo::getDueDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                        : Comparator.comparing(Todo::getDueDate, Comparator.nullsFirst(Comparator.<LocalDateTime>reverseOrder()));
+            }
+            comparator = comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    @Test
+    void testSortedPagesMatchFullSort() {
+        TodoService service = createService(500);
+        List<Todo> all = service.getAllTodos(0, 1000, null, null, null, null).getData();
+
+        for (String sortBy : SORTS) {
+            List<Todo> expected = all.stream().sorted(expectedComparator(sortBy)).collect(Collectors.toList());
+            List<Todo> actual = new ArrayList<>();
+            for (int page = 0; page < 50; page++) {
+                actual.addAll(service.getAllTodos(page, 10, sortBy, null, null, null).getData());
+            }
+            assertEquals(ids(expected), ids(actual), sortBy);
+        }
+    }
+
+    @Test
+    void testPageBeyondResultsIsEmpty() {
+        TodoService service = createService(15);
+        TodoService.PageResponse response = service.getAllTodos(2, 10, "priority_desc", null, null, null);
+        assertEquals(0, response.getData().size());
+        assertEquals(15, response.getTotalItems());
+        assertEquals(5, service.getAllTodos(1, 10, null, null, null, null).getData().size());
+    }
+
+    @Test
+    void testCursorWalkMatchesFullSort() {
+        TodoService service = createService(500);
+        List<Todo> all = service.getAllTodos(0, 1000, null, null, null, null).getData();
+
+        List<String> sorts = new ArrayList<>(SORTS);
+        sorts.add(null);
+        for (String sortBy : sorts) {
+            List<Todo> expected = sortBy == null
+                    ? all
+                    : all.stream().sorted(expectedComparator(sortBy)).collect(Collectors.toList());
+            TodoService.PageResponse response = service.getAllTodos(0, 10, sortBy, null, null, null);
+            List<Todo> actual = new ArrayList<>(response.getData());
+            while (response.getNextCursor() != null) {
+                response = service.getTodosAfter(response.getNextCursor(), 10, sortBy, null, null, null);
+                assertEquals(500, response.getTotalItems());
+                actual.addAll(response.getData());
+            }
+            assertEquals(ids(expected), ids(actual), String.valueOf(sortBy));
+        }
+    }
+
+    @Test
+    void testFacetsAndTotalsMatchBruteForceCounts() {
+        TodoService service = createService(300);
+        List<Todo> all = service.getAllTodos(0, 1000, null, null, null, null).getData();
+        for (int i = 0; i < all.size(); i += 3) {
+            service.markAsDone(all.get(i).getId());
+        }
+        all = service.getAllTodos(0, 1000, null, null, null, null).getData();
+        LocalDateTime dueAfter = LocalDateTime.of(2025, 1, 10, 0, 0);
+        LocalDateTime dueBefore = LocalDateTime.of(2025, 1, 20, 0, 0);
+
+        for (String text : new String[] {null, "1", "todo 2"}) {
+            for (boolean dueFiltered : new boolean[] {false, true}) {
+                List<Todo> matching = new ArrayList<>();
+                for (Todo todo : all) {
+                    if ((text == null || todo.getText().toLowerCase().contains(text))
+                            && (!dueFiltered || (todo.getDueDate() != null && !todo.getDueDate().isBefore(dueAfter)
+                                    && todo.getDueDate().isBefore(dueBefore)))) {
+                        matching.add(todo);
+                    }
+                }
+                for (String status : new String[] {null, "done", "undone"}) {
+                    for (Todo.Priority priority : new Todo.Priority[] {null, Todo.Priority.HIGH}) {
+                        String description = text + " " + dueFiltered + " " + status + " " + priority;
+                        TodoService.PageResponse page = service.getAllTodos(0, 5, null, status, text, priority,
+                                dueFiltered ? dueAfter : null, dueFiltered ? dueBefore : null);
+                        TodoService.PageResponse next = service.getTodosAfter(page.getNextCursor() == null
+                                        ? TodoCursor.encode(TodoRecord.from(all.get(0), 1)) : page.getNextCursor(), 5,
+                                null, status, text, priority, dueFiltered ? dueAfter : null, dueFiltered ? dueBefore : null);
+                        long expectedTotal = matching.stream()
+                                .filter(todo -> status == null || todo.isDone() == status.equals("done"))
+                                .filter(todo -> priority == null || todo.getPriority() == priority)
+                                .count();
+                        assertEquals(expectedTotal, page.getTotalItems(), description);
+                        assertEquals(expectedTotal, next.getTotalItems(), description);
+                        for (boolean done : new boolean[] {true, false}) {
+                            for (Todo.Priority bucket : Todo.Priority.values()) {
+                                long expected = matching.stream()
+                                        .filter(todo -> todo.isDone() == done && todo.getPriority() == bucket)
+                                        .count();
+                                assertEquals(expected, page.getFacets().count(done, bucket), description);
+                                assertEquals(expected, next.getFacets().count(done, bucket), description);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCursorIsStableWhenTodosAreAdded() {
+        TodoService service = createService(30);
+        TodoService.PageResponse first = service.getAllTodos(0, 10, null, "undone", null, null);
+        Todo lastSeen = first.getData().get(9);
+
+        service.markAsDone(first.getData().get(0).getId());
+        service.createTodo(new Todo("Added later", Todo.Priority.HIGH, null));
+
+        TodoService.PageResponse second = service.getTodosAfter(first.getNextCursor(), 10, null, "undone", null, null);
+        assertEquals(lastSeen.getId() + 1, second.getData().get(0).getId());
+        assertEquals(30, second.getTotalItems());
+    }
+
+    @Test
+    void testTodoDoneRightAfterCreationTakesNoTime() {
+        TodoService service = new TodoService(new InMemoryTodoRepository());
+        Todo created = service.createTodo(new Todo("Quick", Todo.Priority.LOW, null));
+        Todo done = service.markAsDone(created.getId());
+
+        long minutes = Duration.between(done.getCreationDate(), done.getDoneDate()).toMinutes();
+        assertEquals(0, minutes);
+        assertEquals(0, service.getMetrics().getByPriority().get(Todo.Priority.LOW));
+    }
+
+    @Test
+    void testMarkAllAsDoneCountsARepeatedIdOnce() {
+        List<TodoEvent.Type> events = new ArrayList<>();
+        TodoService service = new TodoService(new InMemoryTodoRepository(), new SimpleMeterRegistry(), new TodoEventBus() {
+            @Override
+            public void publish(TodoEvent.Type type, Todo todo) {
+                events.add(type);
+            }
+        });
+        LocalDateTime created = LocalDateTime.now().minusHours(2);
+        Todo todo = service.createTodo(new Todo(null, "Report", Todo.Priority.HIGH, null, false, null, created));
+
+        List<TodoService.BatchResult> results = service.markAllAsDone(List.of(todo.getId(), todo.getId()));
+        assertEquals(1, results.size());
+        assertEquals(List.of(TodoEvent.Type.CREATED, TodoEvent.Type.DONE), events);
+        assertEquals(120, service.getMetrics().getByPriority().get(Todo.Priority.HIGH));
+
+        service.markAsUndone(todo.getId());
+        assertEquals(0, service.getMetrics().getByPriority().get(Todo.Priority.HIGH));
+    }
+
+    @Test
+    void testBatchReportsAConcurrentConflictPerItem() {
+        AtomicReference<Long> racingId = new AtomicReference<>();
+        InMemoryTodoRepository repository = new InMemoryTodoRepository() {
+            @Override
+            public List<Todo> saveAll(Iterable<Todo> entities) {
+                Long id = racingId.getAndSet(null);
+                if (id != null) {
+                    Todo concurrent = findById(id).orElseThrow();
+                    concurrent.setText("Changed meanwhile");
+                    save(concurrent);
+                }
+                return super.saveAll(entities);
+            }
+        };
+        TodoService service = new TodoService(repository);
+        Todo report = service.createTodo(new Todo("Report", Todo.Priority.HIGH, null));
+        Todo milk = service.createTodo(new Todo("Milk", Todo.Priority.LOW, null));
+
+        racingId.set(milk.getId());
+        List<TodoService.BatchResult> results = service.markAllAsDone(List.of(report.getId(), milk.getId()));
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(milk.getId(), results.get(1).getId());
+        assertEquals(1, repository.count("done", null, null));
+
+        racingId.set(report.getId());
+        Todo rename = new Todo(report.getId(), "Report v2", Todo.Priority.HIGH);
+        results = service.saveTodos(List.of(new Todo("New", Todo.Priority.LOW, null), rename));
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Changed meanwhile", repository.findById(report.getId()).orElseThrow().getText());
+    }
+
+    @Test
+    void testDeleteByStatusKeepsATodoToggledMeanwhile() {
+        AtomicReference<Long> racingId = new AtomicReference<>();
+        InMemoryTodoRepository repository = new InMemoryTodoRepository() {
+            @Override
+            public List<TodoRecord> deleteAllById(Iterable<Long> ids, String status) {
+                Long id = racingId.getAndSet(null);
+                if (id != null) {
+                    Todo concurrent = findById(id).orElseThrow();
+                    concurrent.setDone(false);
+                    save(concurrent);
+                }
+                return super.deleteAllById(ids, status);
+            }
+        };
+        TodoService service = new TodoService(repository);
+        Todo report = service.createTodo(new Todo("Report", Todo.Priority.HIGH, null));
+        Todo milk = service.createTodo(new Todo("Milk", Todo.Priority.LOW, null));
+        service.markAllAsDone(List.of(report.getId(), milk.getId()));
+
+        racingId.set(milk.getId());
+        List<TodoService.BatchResult> results = service.deleteTodos("done");
+        assertEquals(List.of(report.getId()), results.stream().map(TodoService.BatchResult::getId).toList());
+        assertTrue(repository.existsById(milk.getId()));
+        assertFalse(repository.existsById(report.getId()));
+    }
+
+    @Test
+    void testDeleteCountsTheRowItRemovedOnce() {
+        List<Long> deletedEvents = new ArrayList<>();
+        AtomicReference<Runnable> racing = new AtomicReference<>();
+        InMemoryTodoRepository repository = new InMemoryTodoRepository() {
+            @Override
+            public void deleteById(Long id) {
+                race();
+                super.deleteById(id);
+            }
+
+            @Override
+            public List<TodoRecord> deleteAllById(Iterable<Long> ids, String status) {
+                race();
+                return super.deleteAllById(ids, status);
+            }
+
+            private void race() {
+                Runnable concurrent = racing.getAndSet(null);
+                if (concurrent != null) {
+                    concurrent.run();
+                }
+            }
+        };
+        TodoService service = new TodoService(repository, new SimpleMeterRegistry(), new TodoEventBus() {
+            @Override
+            public void publishDeleted(Long id) {
+                deletedEvents.add(id);
+            }
+        });
+        Todo report = service.createTodo(new Todo(null, "Report", Todo.Priority.HIGH, null, false, null,
+                LocalDateTime.now().minusHours(2)));
+
+        racing.set(() -> service.markAsDone(report.getId()));
+        service.deleteTodo(report.getId());
+        assertEquals(0, service.getMetrics().getByPriority().get(Todo.Priority.HIGH));
+
+        Todo milk = service.createTodo(new Todo(null, "Milk", Todo.Priority.HIGH, null, true,
+                LocalDateTime.now(), LocalDateTime.now().minusHours(1)));
+        racing.set(() -> service.deleteTodo(milk.getId()));
+        assertThrows(IllegalArgumentException.class, () -> service.deleteTodo(milk.getId()));
+        assertEquals(List.of(report.getId(), milk.getId()), deletedEvents);
+        assertEquals(0, service.getMetrics().getByPriority().get(Todo.Priority.HIGH));
+    }
+
+    @Test
+    void testMetricsMatchBruteForceRecomputation() {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        Random random = new Random(7);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 300; i++) {
+            Todo.Priority priority = Todo.Priority.values()[random.nextInt(3)];
+            LocalDateTime creationDate = now.minusMinutes(random.nextInt(10_000));
+            boolean done = random.nextBoolean();
+            LocalDateTime doneDate = done ? creationDate.plusMinutes(random.nextInt(5_000)) : null;
+            repository.save(new Todo(null, "Todo " + i, priority, null, done, doneDate, creationDate));
+        }
+        TodoService service = new TodoService(repository);
+
+        for (int i = 0; i < 2_000; i++) {
+            List<Todo> todos = repository.findAll();
+            if (todos.isEmpty()) {
+                break;
+            }
+            Long id = todos.get(random.nextInt(todos.size())).getId();
+            switch (random.nextInt(5)) {
+                case 0 -> service.markAsDone(id);
+                case 1 -> service.markAsUndone(id);
+                case 2 -> service.updateTodo(id, new Todo("Updated", Todo.Priority.values()[random.nextInt(3)], null));
+                case 3 -> service.deleteTodo(id);
+                default -> service.createTodo(new Todo("Created " + i, Todo.Priority.LOW, null));
+            }
+        }
+
+        long[] counts = new long[3];
+        long[] sums = new long[3];
+        for (Todo todo : repository.findAll()) {
+            if (todo.isDone()) {
+                counts[todo.getPriority().ordinal()]++;
+                sums[todo.getPriority().ordinal()] += Duration.between(todo.getCreationDate(), todo.getDoneDate()).toMillis();
+            }
+        }
+        TodoService.MetricsResponse metrics = service.getMetrics();
+        for (Todo.Priority priority : Todo.Priority.values()) {
+            int i = priority.ordinal();
+            assertEquals(CompletionMetrics.averageMinutes(sums[i], counts[i]), metrics.getByPriority().get(priority), priority.name());
+        }
+        assertEquals(CompletionMetrics.averageMinutes(sums[0] + sums[1] + sums[2], counts[0] + counts[1] + counts[2]),
+                metrics.getAverageTime());
+    }
+}
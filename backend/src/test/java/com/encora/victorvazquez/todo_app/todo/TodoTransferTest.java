@@ -0,0 +1,158 @@
+package com.encora.victorvazquez.todo_app.todo;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+
+import com.encora.victorvazquez.todo_app.todo.repository.InMemoryTodoRepository;
+
+public class TodoTransferTest {
+
+    private static byte[] export(TodoService service, TodoTransfer transfer, TodoTransfer.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TodoTransfer.RowWriter writer = transfer.writer(format, out)) {
+            service.exportTodos(null, null, null, writer::write);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertRoundTrip(TodoTransfer.Format format) throws IOException {
+        TodoTransfer transfer = new TodoTransfer();
+        TodoService source = new TodoService(new InMemoryTodoRepository());
+        LocalDateTime dueDate = LocalDateTime.of(2025, 3, 1, 9, 30);
+        source.createTodo(new Todo("Buy milk, eggs and \"good\" bread\nfrom the bakery", Todo.Priority.HIGH, dueDate));
+        Todo done = source.createTodo(new Todo("Write report", Todo.Priority.LOW, null));
+        source.markAsDone(done.getId());
+        for (int i = 0; i < 2500; i++) {
+            source.createTodo(new Todo("Todo " + i, Todo.Priority.MEDIUM, null));
+        }
+        byte[] exported = export(source, transfer, format);
+
+        TodoService target = new TodoService(new InMemoryTodoRepository());
+        TodoService.ImportResult result = target.importTodos(transfer.reader(format, new ByteArrayInputStream(exported)));
+
+        assertEquals(2502, result.getImported());
+        assertEquals(0, result.getRejected());
+        List<Todo> expected = source.getAllTodos(0, 3, null, null, null, null).getData();
+        List<Todo> actual = target.getAllTodos(0, 3, null, null, null, null).getData();
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getText(), actual.get(i).getText());
+            assertEquals(expected.get(i).getPriority(), actual.get(i).getPriority());
+            assertEquals(expected.get(i).getDueDate(), actual.get(i).getDueDate());
+            assertEquals(expected.get(i).isDone(), actual.get(i).isDone());
+            assertEquals(expected.get(i).getDoneDate(), actual.get(i).getDoneDate());
+            assertEquals(expected.get(i).getCreationDate(), actual.get(i).getCreationDate());
+        }
+        assertEquals(2502, target.getAllTodos(0, 0, null, null, null, null).getTotalItems());
+    }
+
+    @Test
+    void testNdjsonRoundTrip() throws IOException {
+        assertRoundTrip(TodoTransfer.Format.NDJSON);
+    }
+
+    @Test
+    void testCsvRoundTrip() throws IOException {
+        assertRoundTrip(TodoTransfer.Format.CSV);
+    }
+
+    @Test
+    void testImportReportsInvalidRows() throws IOException {
+        TodoTransfer transfer = new TodoTransfer();
+        TodoService service = new TodoService(new InMemoryTodoRepository());
+        String body = "{\"text\":\"Buy milk\",\"priority\":\"LOW\"}\n"
+                + "{\"priority\":\"HIGH\"}\n"
+                + "{\"text\":\"Call mom\",\"priority\":\"URGENT\"}\n"
+                + "{\"text\":\"Write report\",\"priority\":\"HIGH\"}\n";
+
+        TodoService.ImportResult result = service.importTodos(
+                transfer.reader(TodoTransfer.Format.NDJSON, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertTrue(result.getErrors().get(0).startsWith("Row 2: Text is required"));
+        assertTrue(result.getErrors().get(1).startsWith("Row 3: Malformed row"));
+    }
+
+    @Test
+    void testImportSkipsRowsWithSyntaxErrors() throws IOException {
+        TodoTransfer transfer = new TodoTransfer();
+        TodoService service = new TodoService(new InMemoryTodoRepository());
+        String ndjson = "{\"text\":\"Buy milk\",\"priority\":\"LOW\"}\n"
+                + "{\"text\":\"Call mom\",\n"
+                + "{\"text\":\"Write report\",\"priority\":\"HIGH\"}\n";
+        String csv = "text,priority\n"
+                + "Buy milk,LOW\n"
+                + "Call mom,URGENT\n"
+                + "Write report,HIGH\n";
+
+        TodoService.ImportResult fromNdjson = service.importTodos(
+                transfer.reader(TodoTransfer.Format.NDJSON, new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8))));
+        TodoService.ImportResult fromCsv = service.importTodos(
+                transfer.reader(TodoTransfer.Format.CSV, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+
+        for (TodoService.ImportResult result : List.of(fromNdjson, fromCsv)) {
+            assertEquals(2, result.getImported());
+            assertEquals(1, result.getRejected());
+            assertTrue(result.getErrors().get(0).startsWith("Row 2: Malformed row"));
+        }
+        assertEquals(4, service.getAllTodos(0, 0, null, null, null, null).getTotalItems());
+    }
+
+    @Test
+    void testImportRejectsLinesLongerThanTheLimit() throws IOException {
+        TodoTransfer transfer = new TodoTransfer();
+        TodoService service = new TodoService(new InMemoryTodoRepository());
+        String ndjson = "{\"text\":\"Buy milk\",\"priority\":\"LOW\"}\r\n"
+                + "{\"text\":\"" + "x".repeat(100_000) + "\",\"priority\":\"LOW\"}\r\n"
+                + " ".repeat(TodoTransfer.MAX_LINE_LENGTH - 1) + "{}\n"
+                + "{\"text\":\"Write report\",\"priority\":\"HIGH\"}";
+
+        TodoService.ImportResult result = service.importTodos(
+                transfer.reader(TodoTransfer.Format.NDJSON, new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals("Row 2: Malformed row: line longer than " + TodoTransfer.MAX_LINE_LENGTH + " characters",
+                result.getErrors().get(0));
+        assertTrue(result.getErrors().get(1).startsWith("Row 3: Malformed row: line longer than"));
+        assertEquals(List.of("Buy milk", "Write report"), service.getAllTodos(0, 10, null, null, null, null).getData()
+                .stream().map(Todo::getText).sorted().toList());
+    }
+
+    @Test
+    void testImportKeepsTheRowsReadBeforeTheInputBreaks() {
+        TodoService service = new TodoService(new InMemoryTodoRepository());
+        Iterator<Todo> rows = new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                if (read == 2) {
+                    throw new IllegalArgumentException("Malformed input: unexpected end");
+                }
+                return true;
+            }
+
+            @Override
+            public Todo next() {
+                return new Todo("Todo " + read++, Todo.Priority.LOW, null);
+            }
+        };
+
+        TodoService.ImportResult result = service.importTodos(rows);
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(List.of("Row 3: Malformed input: unexpected end"), result.getErrors());
+        assertEquals(2, service.getAllTodos(0, 0, null, null, null, null).getTotalItems());
+    }
+}
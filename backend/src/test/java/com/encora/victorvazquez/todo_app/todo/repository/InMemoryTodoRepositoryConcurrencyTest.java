@@ -0,0 +1,129 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+
+public class InMemoryTodoRepositoryConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int TODOS_PER_THREAD = 2_000;
+
+    @Test
+    void testConcurrentCreatesProduceUniqueIds() throws Exception {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        ConcurrentLinkedQueue<Long> ids = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(threadIndex -> {
+            for (int i = 0; i < TODOS_PER_THREAD; i++) {
+                Todo todo = repository.save(new Todo("Todo " + threadIndex + "-" + i, Todo.Priority.LOW, null));
+                ids.add(todo.getId());
+            }
+        });
+
+        Set<Long> uniqueIds = new HashSet<>(ids);
+        assertEquals(THREADS * TODOS_PER_THREAD, ids.size());
+        assertEquals(THREADS * TODOS_PER_THREAD, uniqueIds.size());
+        assertEquals(THREADS * TODOS_PER_THREAD, repository.findAll().size());
+        for (Long id : uniqueIds) {
+            assertTrue(repository.existsById(id));
+        }
+    }
+
+    @Test
+    void testConcurrentUpdatesAndDeletesAreNotLost() throws Exception {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS * TODOS_PER_THREAD; i++) {
+            ids.add(repository.save(new Todo("Todo " + i, Todo.Priority.LOW, null)).getId());
+        }
+
+        runConcurrently(threadIndex -> {
+            for (int i = threadIndex; i < ids.size(); i += THREADS) {
+                Long id = ids.get(i);
+                if (i % 2 == 0) {
+                    repository.deleteById(id);
+                } else {
+                    Todo todo = new Todo(id, "Updated " + i, Todo.Priority.HIGH);
+                    repository.save(todo);
+                }
+            }
+        });
+
+        assertEquals(ids.size() / 2, repository.findAll().size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (i % 2 == 0) {
+                assertTrue(repository.findById(id).isEmpty());
+            } else {
+                Todo todo = repository.findById(id).orElseThrow();
+                assertEquals("Updated " + i, todo.getText());
+                assertEquals(Todo.Priority.HIGH, todo.getPriority());
+            }
+        }
+        assertEquals(ids.size() / 2, repository.findAll(null, null, Todo.Priority.HIGH).size());
+    }
+
+    @Test
+    void testQueriesNeverReturnATodoTwiceWhileItIsToggled() throws Exception {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        for (int i = 0; i < 100; i++) {
+            repository.save(new Todo("Todo " + i, Todo.Priority.HIGH, null));
+        }
+        Long toggled = repository.save(new Todo("Toggled", Todo.Priority.HIGH, null)).getId();
+
+        runConcurrently(threadIndex -> {
+            for (int i = 0; i < TODOS_PER_THREAD; i++) {
+                if (threadIndex == 0) {
+                    Todo todo = repository.findById(toggled).orElseThrow();
+                    todo.setDone(!todo.isDone());
+                    repository.save(todo);
+                } else {
+                    List<TodoRecord> records = repository.findRecords(null, null, Todo.Priority.HIGH);
+                    Set<Long> distinct = new HashSet<>();
+                    for (TodoRecord record : records) {
+                        assertTrue(distinct.add(record.id()), "Todo " + record.id() + " returned twice");
+                    }
+                    assertTrue(records.size() <= 101);
+                }
+            }
+        });
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int threadIndex = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(threadIndex);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int threadIndex);
+    }
+}
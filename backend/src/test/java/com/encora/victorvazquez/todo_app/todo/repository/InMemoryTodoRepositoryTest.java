@@ -0,0 +1,145 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+
+public class InMemoryTodoRepositoryTest {
+
+    private static List<Long> ids(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).toList();
+    }
+
+    @Test
+    void testFindAllFiltersByStatusAndPriority() {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        Todo high = repository.save(new Todo("Write report", Todo.Priority.HIGH, null));
+        Todo low = repository.save(new Todo("Buy milk", Todo.Priority.LOW, null));
+        Todo doneHigh = new Todo("Call mom", Todo.Priority.HIGH, null);
+        doneHigh.setDone(true);
+        repository.save(doneHigh);
+
+        assertEquals(List.of(high.getId(), low.getId(), doneHigh.getId()), ids(repository.findAll()));
+        assertEquals(List.of(high.getId(), doneHigh.getId()), ids(repository.findAll(null, null, Todo.Priority.HIGH)));
+        assertEquals(List.of(high.getId()), ids(repository.findAll("undone", null, Todo.Priority.HIGH)));
+        assertEquals(List.of(doneHigh.getId()), ids(repository.findAll("done", null, null)));
+        assertEquals(List.of(), ids(repository.findAll("done", null, Todo.Priority.LOW)));
+    }
+
+    @Test
+    void testIndexesFollowUpdatesAndDeletes() {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        Todo todo = repository.save(new Todo("Write report", Todo.Priority.HIGH, null));
+
+        todo.setDone(true);
+        todo.setPriority(Todo.Priority.MEDIUM);
+        repository.save(todo);
+
+        assertEquals(List.of(), ids(repository.findAll("undone", null, null)));
+        assertEquals(List.of(), ids(repository.findAll(null, null, Todo.Priority.HIGH)));
+        assertEquals(List.of(todo.getId()), ids(repository.findAll("done", null, Todo.Priority.MEDIUM)));
+
+        repository.deleteById(todo.getId());
+
+        assertEquals(List.of(), ids(repository.findAll("done", null, Todo.Priority.MEDIUM)));
+        assertEquals(List.of(), ids(repository.findAll()));
+    }
+
+    @Test
+    void testFindAllMatchesTextCaseInsensitively() {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        Todo report = repository.save(new Todo("Write quarterly REPORT", Todo.Priority.HIGH, null));
+        Todo milk = repository.save(new Todo("Buy milk", Todo.Priority.LOW, null));
+        Todo reporter = repository.save(new Todo("Call the reporter", Todo.Priority.LOW, null));
+
+        assertEquals(List.of(report.getId(), reporter.getId()), ids(repository.findAll(null, "report", null)));
+        assertEquals(List.of(reporter.getId()), ids(repository.findAll(null, "Report", Todo.Priority.LOW)));
+        assertEquals(List.of(milk.getId()), ids(repository.findAll(null, "mi", null)));
+        assertEquals(List.of(), ids(repository.findAll(null, "groceries", null)));
+
+        milk.setText("Buy groceries");
+        repository.save(milk);
+        repository.deleteById(reporter.getId());
+
+        assertEquals(List.of(), ids(repository.findAll(null, "milk", null)));
+        assertEquals(List.of(milk.getId()), ids(repository.findAll(null, "groceries", null)));
+        assertEquals(List.of(report.getId()), ids(repository.findAll(null, "report", null)));
+    }
+
+    @Test
+    void testFindByIdReturnsDetachedCopy() {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        LocalDateTime dueDate = LocalDateTime.of(2025, 3, 1, 9, 30, 15, 123_000_000);
+        Todo saved = repository.save(new Todo("Write report", Todo.Priority.MEDIUM, dueDate));
+
+        Todo copy = repository.findById(saved.getId()).orElseThrow();
+        assertEquals(dueDate, copy.getDueDate());
+        assertEquals(saved.getCreationDate(), copy.getCreationDate());
+        assertNotNull(copy.getCreationDate());
+
+        copy.setDone(true);
+        assertFalse(repository.findById(saved.getId()).orElseThrow().isDone());
+        assertEquals(List.of(saved.getId()), ids(repository.findAll("undone", null, null)));
+    }
+
+    @Test
+    void testFindRecordsDueFollowsUpdatesAndDeletes() {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        LocalDateTime noon = LocalDateTime.of(2025, 3, 1, 12, 0);
+        Todo morning = repository.save(new Todo("Write report", Todo.Priority.HIGH, noon.minusHours(3)));
+        Todo evening = repository.save(new Todo("Buy milk", Todo.Priority.LOW, noon.plusHours(6)));
+        Todo undated = repository.save(new Todo("Call mom", Todo.Priority.LOW, null));
+        long from = TodoRecord.toEpochMillis(noon.minusDays(1));
+        long to = TodoRecord.toEpochMillis(noon);
+
+        assertEquals(List.of(morning.getId()), recordIds(repository.findRecordsDue(null, null, null, from, to)));
+        assertEquals(List.of(morning.getId(), evening.getId()), recordIds(repository.findRecordsDue(null, null, null, from, Long.MAX_VALUE)));
+        assertEquals(List.of(evening.getId()), recordIds(repository.findRecordsDue(null, "milk", null, from, Long.MAX_VALUE)));
+
+        evening.setDueDate(noon.minusHours(1));
+        repository.save(evening);
+        undated.setDueDate(noon.minusHours(2));
+        repository.save(undated);
+        morning.setDueDate(null);
+        repository.save(morning);
+
+        assertEquals(List.of(evening.getId(), undated.getId()), recordIds(repository.findRecordsDue(null, null, null, from, to)));
+        assertEquals(List.of(evening.getId()), recordIds(repository.findRecordsDue(null, null, Todo.Priority.LOW, to - 3_600_000L, to)));
+
+        repository.deleteById(evening.getId());
+        assertEquals(List.of(undated.getId()), recordIds(repository.findRecordsDue(null, null, null, from, to)));
+        assertEquals(List.of(), recordIds(repository.findRecordsDue("done", null, null, from, to)));
+    }
+
+    private static List<Long> recordIds(List<TodoRecord> records) {
+        return records.stream().map(TodoRecord::id).toList();
+    }
+
+    @Test
+    void testSaveAllWritesNothingWhenAVersionConflicts() {
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        Todo report = repository.save(new Todo("Write report", Todo.Priority.HIGH, null));
+        Todo milk = repository.save(new Todo("Buy milk", Todo.Priority.LOW, null));
+        assertEquals(1, report.getVersion());
+
+        Todo staleMilk = repository.findById(milk.getId()).orElseThrow();
+        milk.setText("Buy oat milk");
+        assertEquals(2, repository.save(milk).getVersion());
+
+        report.setDone(true);
+        staleMilk.setDone(true);
+        assertThrows(TodoVersionConflictException.class, () -> repository.saveAll(List.of(report, staleMilk)));
+        assertEquals(0, repository.count("done", null, null));
+        assertEquals(1, repository.findById(report.getId()).orElseThrow().getVersion());
+
+        Todo unconditional = new Todo(milk.getId(), "Buy milk", Todo.Priority.LOW);
+        assertEquals(3, repository.save(unconditional).getVersion());
+    }
+}
@@ -0,0 +1,214 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+
+public class MappedTodoRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private MappedTodoRepository open() throws Exception {
+        return new MappedTodoRepository(directory.resolve("todos.mmap"));
+    }
+
+    private static List<String> describe(List<Todo> todos) {
+        return todos.stream()
+                .map(todo -> todo.getId() + ":" + todo.getText() + ":" + todo.getPriority() + ":" + todo.isDone() + ":" + todo.getDueDate())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void testFiltersAndCountsFollowUpdatesAndDeletes() throws Exception {
+        try (MappedTodoRepository repository = open()) {
+            Todo report = repository.save(new Todo("Write quarterly REPORT", Todo.Priority.HIGH, LocalDateTime.of(2025, 1, 1, 12, 0)));
+            Todo milk = repository.save(new Todo("Buy milk", Todo.Priority.LOW, null));
+            Todo reporter = repository.save(new Todo("Call the reporter", Todo.Priority.LOW, null));
+
+            reporter.setDone(true);
+            repository.save(reporter);
+
+            assertEquals(List.of("1:Write quarterly REPORT:HIGH:false:2025-01-01T12:00"), describe(repository.findAll("undone", "report", null)));
+            assertEquals(List.of(milk.getId(), reporter.getId()),
+                    repository.findAll(null, null, Todo.Priority.LOW).stream().map(Todo::getId).toList());
+            assertEquals(1, repository.count("done", null, null));
+            assertEquals(2, repository.count(null, null, Todo.Priority.LOW));
+            assertEquals(List.of(reporter.getId()),
+                    repository.findRecordsAfter(null, null, null, milk.getId(), 5).stream().map(TodoRecord::id).toList());
+
+            repository.deleteById(report.getId());
+
+            assertFalse(repository.existsById(report.getId()));
+            assertEquals(0, repository.count(null, null, Todo.Priority.HIGH));
+            assertEquals(List.of(), repository.findAll(null, "report", Todo.Priority.HIGH));
+        }
+    }
+
+    @Test
+    void testReusesDeletedSlotsBeforeGrowing() throws Exception {
+        try (MappedTodoRepository repository = open()) {
+            for (int i = 0; i < 10; i++) {
+                repository.save(new Todo("Todo " + i, Todo.Priority.MEDIUM, null));
+            }
+            repository.deleteAllById(List.of(2L, 5L, 7L));
+            assertEquals(3, repository.freeSlotCount());
+
+            for (int i = 0; i < 3; i++) {
+                repository.save(new Todo("Reused " + i, Todo.Priority.LOW, null));
+            }
+
+            assertEquals(10, repository.slotCount());
+            assertEquals(0, repository.freeSlotCount());
+            assertEquals(10, repository.findAll().size());
+        }
+    }
+
+    @Test
+    void testReopenRestoresTodosAndFreeSlots() throws Exception {
+        List<String> expected;
+        try (MappedTodoRepository repository = open()) {
+            for (int i = 0; i < 100; i++) {
+                repository.save(new Todo("Todo " + i, Todo.Priority.values()[i % 3], null));
+            }
+            repository.deleteById(10L);
+            Todo updated = repository.findById(20L).orElseThrow();
+            updated.setText("Updated ✓");
+            updated.setDone(true);
+            repository.save(updated);
+            expected = describe(repository.findAll());
+        }
+
+        try (MappedTodoRepository reopened = open()) {
+            assertEquals(expected, describe(reopened.findAll()));
+            assertEquals(1, reopened.freeSlotCount());
+            assertEquals(1, reopened.count("done", null, null));
+            assertEquals(101L, reopened.save(new Todo("Next", Todo.Priority.LOW, null)).getId());
+            assertEquals(100, reopened.slotCount());
+            assertThrows(IllegalArgumentException.class,
+                    () -> reopened.save(new Todo("✓".repeat(121), Todo.Priority.LOW, null)));
+        }
+    }
+
+    @Test
+    void testSaveComparesAgainstStoredVersion() throws Exception {
+        try (MappedTodoRepository repository = open()) {
+            Todo first = repository.save(new Todo("Buy milk", Todo.Priority.LOW, null));
+            Todo stale = repository.findById(first.getId()).orElseThrow();
+            Todo current = repository.findById(first.getId()).orElseThrow();
+            current.setText("Buy oat milk");
+            assertEquals(2, repository.save(current).getVersion());
+
+            stale.setDone(true);
+            TodoVersionConflictException conflict = assertThrows(TodoVersionConflictException.class, () -> repository.save(stale));
+            assertEquals(2, conflict.getActualVersion());
+            assertEquals(0, repository.count("done", null, null));
+        }
+
+        try (MappedTodoRepository reopened = open()) {
+            Todo todo = reopened.findById(1L).orElseThrow();
+            assertEquals(2, todo.getVersion());
+            assertEquals("Buy oat milk", todo.getText());
+        }
+    }
+
+    @Test
+    void testSaveAllWritesNothingWhenAVersionConflicts() throws Exception {
+        try (MappedTodoRepository repository = open()) {
+            Todo report = repository.save(new Todo("Write report", Todo.Priority.HIGH, null));
+            Todo milk = repository.save(new Todo("Buy milk", Todo.Priority.LOW, null));
+            Todo staleMilk = repository.findById(milk.getId()).orElseThrow();
+            milk.setText("Buy oat milk");
+            repository.save(milk);
+
+            report.setDone(true);
+            staleMilk.setDone(true);
+            assertThrows(TodoVersionConflictException.class, () -> repository.saveAll(List.of(report, staleMilk)));
+            assertEquals(0, repository.count("done", null, null));
+            assertEquals(1, repository.findById(report.getId()).orElseThrow().getVersion());
+
+            report.setVersion(1);
+            assertEquals(List.of(2, 1), repository.saveAll(List.of(report, new Todo("New", Todo.Priority.LOW, null)))
+                    .stream().map(Todo::getVersion).toList());
+        }
+    }
+
+    @Test
+    void testFindRecordsDueReadsDueDatesFromTheRecords() throws Exception {
+        LocalDateTime monday = LocalDateTime.of(2025, 3, 3, 9, 0);
+        long from = TodoRecord.toEpochMillis(monday);
+        long to = TodoRecord.toEpochMillis(monday.plusDays(1));
+        try (MappedTodoRepository repository = open()) {
+            repository.save(new Todo("Undated", Todo.Priority.LOW, null));
+            Todo report = repository.save(new Todo("Write report", Todo.Priority.HIGH, monday));
+            repository.save(new Todo("Call mom", Todo.Priority.LOW, monday.plusHours(3)));
+            repository.save(new Todo("Pay rent", Todo.Priority.LOW, monday.plusDays(1)));
+
+            assertEquals(List.of(2L, 3L), repository.findRecordsDue(null, null, null, from, to).stream().map(TodoRecord::id).toList());
+            assertEquals(List.of(2L, 3L, 4L),
+                    repository.findRecordsDue(null, null, null, Long.MIN_VALUE, Long.MAX_VALUE).stream().map(TodoRecord::id).toList());
+
+            report.setDueDate(monday.minusDays(1));
+            repository.save(report);
+            assertEquals(List.of(3L), repository.findRecordsDue("undone", "mom", null, from, to).stream().map(TodoRecord::id).toList());
+        }
+
+        try (MappedTodoRepository reopened = open()) {
+            assertEquals(List.of(3L), reopened.findRecordsDue(null, null, null, from, to).stream().map(TodoRecord::id).toList());
+            assertEquals(List.of(), reopened.findRecordsDue(null, null, Todo.Priority.HIGH, from, to));
+        }
+    }
+
+    @Test
+    void testReopenKeepsOneVersionOfAnInterruptedUpdate() throws Exception {
+        try (MappedTodoRepository repository = open()) {
+            Todo todo = repository.save(new Todo("Buy milk", Todo.Priority.LOW, null));
+            todo.setText("Buy oat milk");
+            repository.save(todo);
+            assertEquals(2, repository.slotCount());
+        }
+
+        // Stopped after writing the new slot, before freeing the old one.
+        setSlot(0, MappedTodoRepository.STATE, 1);
+        setSlot(0, MappedTodoRepository.ID, 1L);
+        try (MappedTodoRepository reopened = open()) {
+            Todo todo = reopened.findById(1L).orElseThrow();
+            assertEquals("Buy oat milk", todo.getText());
+            assertEquals(2, todo.getVersion());
+            assertEquals(1, reopened.count(null, null, null));
+            assertEquals(1, reopened.freeSlotCount());
+        }
+
+        // Stopped halfway through writing the new slot.
+        setSlot(0, MappedTodoRepository.STATE, 1);
+        setSlot(0, MappedTodoRepository.ID, 1L);
+        setSlot(1, MappedTodoRepository.SEQUENCE, 3);
+        try (MappedTodoRepository reopened = open()) {
+            Todo todo = reopened.findById(1L).orElseThrow();
+            assertEquals("Buy milk", todo.getText());
+            assertEquals(1, todo.getVersion());
+            assertEquals(1, reopened.count(null, null, null));
+        }
+    }
+
+    private void setSlot(int slot, int field, long value) throws Exception {
+        ByteBuffer buffer = field == MappedTodoRepository.ID ? ByteBuffer.allocate(Long.BYTES).putLong(value)
+                : field == MappedTodoRepository.STATE ? ByteBuffer.allocate(1).put((byte) value)
+                : ByteBuffer.allocate(Integer.BYTES).putInt((int) value);
+        try (FileChannel channel = FileChannel.open(directory.resolve("todos.mmap"), StandardOpenOption.WRITE)) {
+            channel.write(buffer.flip(), MappedTodoRepository.FILE_HEADER_SIZE + (long) slot * MappedTodoRepository.SLOT_SIZE + field);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.encora.victorvazquez.todo_app.TodoAppApplication;
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import com.encora.victorvazquez.todo_app.todo.TodoService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+public class ReplicationFollowerTest {
+    private static final String SECRET = "test-secret";
+    private static ConfigurableApplicationContext leaderContext;
+    private static ConfigurableApplicationContext followerContext;
+    private static TodoRepository leader;
+    private static TodoRepository follower;
+
+    private static ConfigurableApplicationContext start(String... properties) {
+        List<String> args = new ArrayList<>(List.of("--server.port=0", "--spring.main.banner-mode=off",
+                "--logging.level.org.springframework.web=warn", "--todo.replication.secret=" + SECRET));
+        for (String property : properties) {
+            if (property.startsWith("server.port=")) {
+                args.remove("--server.port=0");
+            }
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(TodoAppApplication.class).run(args.toArray(String[]::new));
+    }
+
+    @BeforeAll
+    static void startNodes() {
+        leaderContext = start("todo.replication.role=leader");
+        leader = leaderContext.getBean(TodoRepository.class);
+        leader.save(new Todo("Before the follower", Todo.Priority.LOW, null));
+        String port = leaderContext.getEnvironment().getProperty("local.server.port");
+        followerContext = start("todo.replication.role=follower",
+                "todo.replication.leader-url=http://localhost:" + port,
+                "todo.replication.id-block=10");
+        follower = followerContext.getBean(TodoRepository.class);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (followerContext != null) {
+            followerContext.close();
+        }
+        if (leaderContext != null) {
+            leaderContext.close();
+        }
+    }
+
+    @Test
+    void testFollowerWritesGoThroughLeaderAndReadTheirOwnWrites() {
+        Todo saved = follower.save(new Todo("From the follower", Todo.Priority.HIGH, null));
+
+        assertEquals(1, saved.getVersion());
+        assertEquals("From the follower", follower.findById(saved.getId()).orElseThrow().getText());
+        assertEquals("From the follower", leader.findById(saved.getId()).orElseThrow().getText());
+
+        follower.deleteById(saved.getId());
+        assertTrue(follower.findById(saved.getId()).isEmpty());
+        assertTrue(leader.findById(saved.getId()).isEmpty());
+    }
+
+    @Test
+    void testFollowerCatchesUpWithLeaderWrites() throws Exception {
+        assertTrue(follower.findAll().stream().anyMatch(todo -> todo.getText().equals("Before the follower")));
+
+        Todo saved = leader.save(new Todo("From the leader", Todo.Priority.MEDIUM, null));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!follower.existsById(saved.getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(saved.getText(), follower.findById(saved.getId()).orElseThrow().getText());
+
+        TenantContext.run("acme", () -> leader.save(new Todo("Other tenant", Todo.Priority.LOW, null)));
+        Todo forwarded = TenantContext.call("acme", () -> follower.save(new Todo("Other tenant, follower", Todo.Priority.LOW, null)));
+        assertEquals(2, TenantContext.call("acme", () -> follower.count(null, null, null)));
+        assertTrue(TenantContext.call("acme", () -> leader.existsById(forwarded.getId())));
+    }
+
+    @Test
+    void testFollowerSurfacesLeaderConflictsAndValidation() {
+        Todo saved = follower.save(new Todo("Versioned", Todo.Priority.LOW, null));
+        Todo stale = follower.findById(saved.getId()).orElseThrow();
+        follower.save(stale);
+        stale.setText("Stale");
+
+        TodoVersionConflictException conflict = assertThrows(TodoVersionConflictException.class, () -> follower.save(stale));
+        assertEquals(2, conflict.getActualVersion());
+        assertThrows(IllegalArgumentException.class, () -> follower.save(new Todo("No priority", null, null)));
+    }
+
+    @Test
+    void testEveryNodeCountsEveryWriteOnce() throws Exception {
+        TodoService leaderService = leaderContext.getBean(TodoService.class);
+        TodoService followerService = followerContext.getBean(TodoService.class);
+        assertEquals(0, TenantContext.call("metrics", () -> leaderService.getMetrics().getAverageTime()));
+        assertEquals(0, TenantContext.call("metrics", () -> followerService.getMetrics().getAverageTime()));
+
+        LocalDateTime now = LocalDateTime.now();
+        Todo doneOnLeader = TenantContext.call("metrics", () -> {
+            Todo created = leaderService.createTodo(
+                    new Todo(null, "Done on the leader", Todo.Priority.LOW, null, false, null, now.minusMinutes(60)));
+            return leaderService.markAsDone(created.getId());
+        });
+        Todo open = TenantContext.call("metrics", () -> leaderService.createTodo(
+                new Todo(null, "Done on the follower", Todo.Priority.LOW, null, false, null, now.minusMinutes(120))));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!TenantContext.call("metrics", () -> follower.existsById(open.getId())) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(TenantContext.call("metrics", () -> follower.findById(doneOnLeader.getId()).orElseThrow().isDone()));
+        assertEquals(60, TenantContext.call("metrics", () -> followerService.getMetrics().getAverageTime()));
+
+        TenantContext.run("metrics", () -> followerService.markAsDone(open.getId()));
+
+        assertEquals(90, TenantContext.call("metrics", () -> followerService.getMetrics().getAverageTime()));
+        assertEquals(90, TenantContext.call("metrics", () -> leaderService.getMetrics().getAverageTime()));
+        assertThrows(IllegalArgumentException.class, () -> follower.save(new Todo("x".repeat(121), Todo.Priority.LOW, null)));
+    }
+
+    @Test
+    void testLeaderOnlyAnswersNodesWithTheSecret() throws Exception {
+        URI snapshot = URI.create("http://localhost:" + leaderContext.getEnvironment().getProperty("local.server.port")
+                + "/replication/snapshot");
+        HttpClient client = HttpClient.newHttpClient();
+
+        HttpResponse<Void> anonymous = client.send(HttpRequest.newBuilder(snapshot).build(), HttpResponse.BodyHandlers.discarding());
+        HttpResponse<Void> wrong = client.send(HttpRequest.newBuilder(snapshot).header(ReplicationCodec.SECRET_HEADER, "guess").build(),
+                HttpResponse.BodyHandlers.discarding());
+        HttpResponse<Void> node = client.send(HttpRequest.newBuilder(snapshot).header(ReplicationCodec.SECRET_HEADER, SECRET).build(),
+                HttpResponse.BodyHandlers.discarding());
+
+        assertEquals(401, anonymous.statusCode());
+        assertEquals(401, wrong.statusCode());
+        assertEquals(200, node.statusCode());
+    }
+
+    @Test
+    void testConcurrentCreatesOnBothNodesGetDistinctIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> ids = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                TodoRepository node = i % 2 == 0 ? leader : follower;
+                ids.add(executor.submit(() -> node.save(new Todo("Concurrent", Todo.Priority.MEDIUM, null)).getId()));
+            }
+            Set<Long> distinct = new HashSet<>();
+            for (Future<Long> id : ids) {
+                distinct.add(id.get());
+            }
+            assertEquals(200, distinct.size());
+            for (Long id : distinct) {
+                assertTrue(leader.existsById(id));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFollowerResyncsWhenTheLeaderRestartsWithANewLog() throws Exception {
+        ConfigurableApplicationContext first = start("todo.replication.role=leader");
+        ConfigurableApplicationContext restarted = null;
+        ConfigurableApplicationContext node = null;
+        try {
+            String port = first.getEnvironment().getProperty("local.server.port");
+            TodoRepository firstLeader = first.getBean(TodoRepository.class);
+            Todo old = firstLeader.save(new Todo("Before the restart", Todo.Priority.LOW, null));
+            firstLeader.save(new Todo("Also before the restart", Todo.Priority.LOW, null));
+            firstLeader.save(new Todo("Still before the restart", Todo.Priority.LOW, null));
+            node = start("todo.replication.role=follower",
+                    "todo.replication.leader-url=http://localhost:" + port,
+                    "todo.replication.poll-wait=PT0.2S");
+            TodoRepository replica = node.getBean(TodoRepository.class);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!replica.existsById(old.getId()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(replica.existsById(old.getId()));
+
+            first.close();
+            restarted = start("todo.replication.role=leader", "server.port=" + port);
+            Todo fresh = restarted.getBean(TodoRepository.class).save(new Todo("After the restart", Todo.Priority.HIGH, null));
+            deadline = System.currentTimeMillis() + 10000;
+            while (replica.count(null, "After the restart", null) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("After the restart", replica.findById(fresh.getId()).orElseThrow().getText());
+            assertFalse(replica.findAll().stream().anyMatch(todo -> todo.getText().toLowerCase().contains("before the restart")));
+        } finally {
+            if (node != null) {
+                node.close();
+            }
+            if (restarted != null) {
+                restarted.close();
+            }
+            first.close();
+        }
+    }
+
+    @Test
+    void testWritesGiveUpOnALeaderThatNeverAnswers() throws Exception {
+        try (ServerSocket stalled = new ServerSocket(0)) {
+            List<Socket> accepted = new ArrayList<>();
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        accepted.add(stalled.accept());
+                    }
+                } catch (Exception closed) {
+                    // the test is over
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            LeaderClient client = new LeaderClient(URI.create("http://localhost:" + stalled.getLocalPort()), SECRET,
+                    Duration.ofMillis(300));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> assertThrows(UncheckedIOException.class, () -> client.reserveIds("default", 10)));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+
+public class ReplicationLogTest {
+
+    @Test
+    void testLogsMutationsInOrderAndDropsTheOldest() throws Exception {
+        ReplicationLog log = new ReplicationLog(3);
+        InMemoryTodoRepository repository = new InMemoryTodoRepository();
+        log.attach(repository, "default");
+
+        Todo first = repository.save(new Todo("First", Todo.Priority.LOW, null));
+        repository.save(new Todo("Second", Todo.Priority.HIGH, null));
+        repository.deleteById(first.getId());
+
+        List<ReplicationLog.Entry> entries = log.entriesAfter(0, 10, Duration.ZERO);
+        assertEquals(List.of(1L, 2L, 3L), entries.stream().map(ReplicationLog.Entry::sequence).toList());
+        assertEquals("First", TodoCodec.decode(ByteBuffer.wrap(entries.get(0).payload())).text());
+        assertEquals(ReplicationLog.OP_DELETE, entries.get(2).op());
+        assertEquals(first.getId(), ByteBuffer.wrap(entries.get(2).payload()).getLong());
+        assertEquals(1, log.entriesAfter(1, 1, Duration.ZERO).size());
+
+        repository.save(new Todo("Third", Todo.Priority.MEDIUM, null));
+        assertNull(log.entriesAfter(0, 10, Duration.ZERO));
+        assertEquals(3, log.entriesAfter(1, 10, Duration.ZERO).size());
+        assertTrue(log.entriesAfter(4, 10, Duration.ofMillis(10)).isEmpty());
+    }
+
+    @Test
+    void testSnapshotCarriesEveryTenantAtTheCurrentSequence() throws Exception {
+        ReplicationLog log = new ReplicationLog(10);
+        TenantShardedTodoRepository repository = new TenantShardedTodoRepository(tenant -> {
+            InMemoryTodoRepository shard = new InMemoryTodoRepository();
+            log.attach(shard, tenant);
+            return shard;
+        });
+        repository.shard("default").save(new Todo("Default", Todo.Priority.LOW, null));
+        repository.shard("acme").save(new Todo("Acme", Todo.Priority.HIGH, null));
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        log.writeSnapshot(repository, new DataOutputStream(buffer));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        assertEquals(log.epoch(), in.readLong());
+        assertEquals(2, in.readLong());
+        int entries = 0;
+        ReplicationLog.Entry entry;
+        while ((entry = ReplicationCodec.readEntry(in)) != null) {
+            assertEquals(log.epoch(), entry.epoch());
+            assertEquals(2, entry.sequence());
+            assertEquals(entry.tenant().equals("acme") ? "Acme" : "Default",
+                    TodoCodec.decode(ByteBuffer.wrap(entry.payload())).text());
+            entries++;
+        }
+        assertEquals(2, entries);
+    }
+}
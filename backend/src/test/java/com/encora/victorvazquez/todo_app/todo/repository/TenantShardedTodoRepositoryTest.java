@@ -0,0 +1,150 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.encora.victorvazquez.todo_app.tenant.TenantContext;
+import com.encora.victorvazquez.todo_app.todo.Todo;
+import com.encora.victorvazquez.todo_app.todo.TodoService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TenantShardedTodoRepositoryTest {
+
+    private static List<String> texts(List<Todo> todos) {
+        return todos.stream().map(Todo::getText).toList();
+    }
+
+    @Test
+    void testTenantsOnlySeeTheirOwnTodos() {
+        TenantShardedTodoRepository repository = new TenantShardedTodoRepository(tenant -> new InMemoryTodoRepository());
+        Todo milk = TenantContext.call("team-a", () -> repository.save(new Todo("Buy milk", Todo.Priority.LOW, null)));
+        Todo report = TenantContext.call("team-b", () -> repository.save(new Todo("Write report", Todo.Priority.HIGH, null)));
+        repository.save(new Todo("Call mom", Todo.Priority.MEDIUM, null));
+
+        assertEquals(milk.getId(), report.getId());
+        assertEquals(List.of("Buy milk"), TenantContext.call("team-a", () -> texts(repository.findAll())));
+        assertEquals(List.of("Write report"), TenantContext.call("team-b", () -> texts(repository.findAll(null, null, null))));
+        assertEquals(List.of("Call mom"), texts(repository.findAll()));
+        assertEquals(0, TenantContext.call("team-a", () -> repository.count(null, null, Todo.Priority.HIGH)));
+        assertEquals(Set.of(TenantContext.DEFAULT_TENANT, "team-a", "team-b"), repository.tenants());
+
+        long versionB = TenantContext.call("team-b", repository::version);
+        TenantContext.run("team-a", () -> repository.deleteById(milk.getId()));
+        assertEquals(versionB, TenantContext.call("team-b", repository::version));
+        assertFalse(TenantContext.call("team-a", () -> repository.existsById(milk.getId())));
+        assertEquals(List.of("Write report"), TenantContext.call("team-b", () -> texts(repository.findAll())));
+    }
+
+    @Test
+    void testServiceKeepsMetricsAndCachedPagesPerTenant() {
+        TodoService service = new TodoService(new TenantShardedTodoRepository(tenant -> new InMemoryTodoRepository()));
+        LocalDateTime created = LocalDateTime.of(2025, 3, 1, 9, 0);
+        TenantContext.run("team-a", () -> service.createTodo(
+                new Todo(null, "Buy milk", Todo.Priority.LOW, null, true, created.plusHours(2), created)));
+
+        assertEquals(1, TenantContext.call("team-a", () -> service.getAllTodos(0, 10, null, null, null, null).getTotalItems()));
+        assertEquals(0, TenantContext.call("team-b", () -> service.getAllTodos(0, 10, null, null, null, null).getTotalItems()));
+        assertEquals(120, TenantContext.call("team-a", () -> service.getMetrics().getAverageTime()));
+        assertEquals(0, TenantContext.call("team-b", () -> service.getMetrics().getAverageTime()));
+        assertThrows(IllegalArgumentException.class, () -> TenantContext.run("../etc", () -> { }));
+    }
+
+    @Test
+    void testReadsDoNotCreateShardsAndWritesAreCapped() {
+        TenantShardedTodoRepository repository = new TenantShardedTodoRepository(tenant -> new InMemoryTodoRepository(),
+                List.of(), false, 2);
+        TodoService service = new TodoService(repository);
+
+        for (int i = 0; i < 100; i++) {
+            String tenant = "reader-" + i;
+            assertEquals(0, TenantContext.call(tenant, () -> service.getAllTodos(0, 10, null, null, null, null).getTotalItems()));
+            assertEquals(0, TenantContext.call(tenant, () -> service.getMetrics().getAverageTime()));
+            assertFalse(TenantContext.call(tenant, () -> repository.existsById(1L)));
+            TenantContext.run(tenant, () -> repository.deleteById(1L));
+        }
+        assertTrue(repository.tenants().isEmpty());
+
+        TenantContext.run("team-a", () -> service.createTodo(new Todo("Buy milk", Todo.Priority.LOW, null)));
+        TenantContext.run("team-b", () -> service.createTodo(new Todo("Write report", Todo.Priority.HIGH, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> TenantContext.run("team-c", () -> service.createTodo(new Todo("One too many", Todo.Priority.LOW, null))));
+        assertEquals(Set.of("team-a", "team-b"), repository.tenants());
+        assertEquals(1, TenantContext.call("team-a", () -> service.getAllTodos(0, 10, null, null, null, null).getTotalItems()));
+    }
+
+    @Test
+    void testShardMetersAreTaggedWithTheirTenant() {
+        TenantShardedTodoRepository repository = new TenantShardedTodoRepository(tenant -> new InMemoryTodoRepository(),
+                List.of("team-a"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        repository.bindTo(registry);
+        TenantContext.run("team-b", () -> repository.save(new Todo("Write report", Todo.Priority.HIGH, null)));
+        TenantContext.run("team-b", () -> repository.save(new Todo("Send report", Todo.Priority.LOW, null)));
+
+        assertEquals(0, registry.get("todo.repository.size").tag("tenant", "team-a").gauge().value());
+        assertEquals(2, registry.get("todo.repository.size").tag("tenant", "team-b").gauge().value());
+        assertEquals(2, registry.get("todo.repository.shards").gauge().value());
+    }
+
+    @Test
+    void testBackgroundWarmUpOpensExistingTenantsWhileServing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TenantShardedTodoRepository repository = new TenantShardedTodoRepository(tenant -> {
+            if (tenant.equals("slow")) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new InMemoryTodoRepository();
+        }, List.of("slow"), true);
+
+        repository.save(new Todo("Served during warm-up", Todo.Priority.LOW, null));
+        assertFalse(repository.warmUp().isDone());
+
+        release.countDown();
+        repository.warmUp().get(5, TimeUnit.SECONDS);
+        assertTrue(repository.tenants().contains("slow"));
+        assertTrue(new TenantShardedTodoRepository(tenant -> new InMemoryTodoRepository(), List.of("a")).warmUp().isDone());
+    }
+
+    @Test
+    void testServiceKeepsTenantsApartWhileTheirShardsWarmUp() {
+        CountDownLatch release = new CountDownLatch(1);
+        LocalDateTime created = LocalDateTime.of(2025, 3, 1, 9, 0);
+        TenantShardedTodoRepository repository = new TenantShardedTodoRepository(tenant -> {
+            InMemoryTodoRepository shard = new InMemoryTodoRepository();
+            if (tenant.equals("slow")) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                shard.save(new Todo(null, "Todo of " + tenant, Todo.Priority.LOW, null, true, created.plusHours(1), created));
+            }
+            return shard;
+        }, List.of("slow", "team-a", "team-b"), true);
+        TodoService service = new TodoService(repository);
+        try {
+            for (String tenant : List.of("team-a", "team-b")) {
+                TodoService.PageResponse page = TenantContext.call(tenant, () -> service.getAllTodos(0, 10, null, null, null, null));
+                assertEquals(List.of("Todo of " + tenant), texts(page.getData()));
+                assertEquals(60, TenantContext.call(tenant, () -> service.getMetrics().getAverageTime()));
+            }
+            assertFalse(repository.warmUp().isDone());
+        } finally {
+            release.countDown();
+        }
+    }
+}
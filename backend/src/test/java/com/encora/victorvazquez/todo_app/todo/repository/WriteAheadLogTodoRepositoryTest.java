@@ -0,0 +1,104 @@
+package com.encora.victorvazquez.todo_app.todo.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.encora.victorvazquez.todo_app.todo.Todo;
+
+public class WriteAheadLogTodoRepositoryTest {
+    private static final Duration NO_SCHEDULED_SNAPSHOTS = Duration.ofDays(1);
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLogTodoRepository open() throws Exception {
+        return new WriteAheadLogTodoRepository(directory, NO_SCHEDULED_SNAPSHOTS);
+    }
+
+    private static List<String> describe(List<Todo> todos) {
+        return todos.stream()
+                .map(todo -> todo.getId() + ":" + todo.getText() + ":" + todo.getPriority() + ":" + todo.isDone() + ":" + todo.getDueDate() + ":" + todo.getVersion())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void testRecoversFromLogWithoutSnapshot() throws Exception {
+        WriteAheadLogTodoRepository repository = open();
+        Todo kept = repository.save(new Todo("Keep me", Todo.Priority.HIGH, LocalDateTime.of(2025, 1, 1, 12, 0)));
+        Todo deleted = repository.save(new Todo("Delete me", Todo.Priority.LOW, null));
+        kept.setDone(true);
+        repository.save(kept);
+        repository.deleteById(deleted.getId());
+        List<String> expected = describe(repository.findAll());
+
+        WriteAheadLogTodoRepository recovered = open();
+
+        assertEquals(expected, describe(recovered.findAll()));
+        assertEquals(kept.getId() + 2, recovered.save(new Todo("Next", Todo.Priority.LOW, null)).getId());
+    }
+
+    @Test
+    void testReservedIdsAreNotHandedOutAgainAfterARestart() throws Exception {
+        WriteAheadLogTodoRepository repository = open();
+        repository.save(new Todo("Before the lease", Todo.Priority.LOW, null));
+        long first = repository.reserveIds(100);
+
+        WriteAheadLogTodoRepository recovered = open();
+        assertEquals(first + 100, recovered.save(new Todo("After the lease", Todo.Priority.LOW, null)).getId());
+
+        long second = recovered.reserveIds(100);
+        recovered.snapshot();
+        assertEquals(second + 100, open().save(new Todo("After the snapshot", Todo.Priority.LOW, null)).getId());
+    }
+
+    @Test
+    void testRecoversFromSnapshotPlusLogTail() throws Exception {
+        WriteAheadLogTodoRepository repository = open();
+        for (int i = 0; i < 100; i++) {
+            repository.save(new Todo("Todo " + i, Todo.Priority.MEDIUM, null));
+        }
+        repository.snapshot();
+        repository.deleteById(1L);
+        Todo updated = repository.findById(2L).orElseThrow();
+        updated.setText("Updated after snapshot");
+        repository.save(updated);
+        List<String> expected = describe(repository.findAll());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.anyMatch(file -> file.getFileName().toString().startsWith("snapshot-")));
+        }
+        WriteAheadLogTodoRepository recovered = open();
+
+        assertEquals(expected, describe(recovered.findAll()));
+        assertFalse(recovered.existsById(1L));
+    }
+
+    @Test
+    void testIgnoresTornRecordAtEndOfLog() throws Exception {
+        WriteAheadLogTodoRepository repository = open();
+        repository.save(new Todo("Durable", Todo.Priority.HIGH, null));
+        List<String> expected = describe(repository.findAll());
+        Path lastSegment;
+        try (Stream<Path> files = Files.list(directory)) {
+            lastSegment = files.filter(file -> file.getFileName().toString().startsWith("wal-")).sorted()
+                    .reduce((first, second) -> second).orElseThrow();
+        }
+        Files.write(lastSegment, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        WriteAheadLogTodoRepository recovered = open();
+
+        assertEquals(expected, describe(recovered.findAll()));
+    }
+}
@@ -78,64 +78,7 @@ export const markTodoAsUndone = async (id: number): Promise<Todo> => {
 };
 
 export const fetchTodoMetrics = async (): Promise<TodoMetrics> => {
-  const todos = await fetchTodos();
-
-  const completedTodos = todos.data.filter(
-    (todo) => todo.done && todo.doneDate
-  );
-
-  if (completedTodos.length === 0) {
-    return {
-      averageTime: 0,
-      byPriority: {
-        LOW: 0,
-        MEDIUM: 0,
-        HIGH: 0,
-      },
-    };
-  }
-
-  const completionTimes = completedTodos.map((todo) => {
-    const creationDate = new Date(todo.creationDate);
-    const doneDate = new Date(todo.doneDate);
-    return (doneDate.getTime() - creationDate.getTime()) / (1000 * 60);
-  });
-
-  const averageTime =
-    completionTimes.length > 0
-      ? completionTimes.reduce((acc, time) => acc + time, 0) /
-        completionTimes.length
-      : 0;
-
-  const byPriority = completedTodos.reduce((acc, todo) => {
-    const creationDate = new Date(todo.creationDate);
-    const doneDate = new Date(todo.doneDate);
-    const completionTime =
-      (doneDate.getTime() - creationDate.getTime()) / (1000 * 60);
-
-    if (!acc[todo.priority]) {
-      acc[todo.priority] = { sum: 0, count: 0 };
-    }
-    acc[todo.priority].sum += completionTime;
-    acc[todo.priority].count += 1;
-    return acc;
-  }, {} as { [key: string]: { sum: number; count: number } });
-
-  const averageByPriority = {
-    LOW: 0,
-    MEDIUM: 0,
-    HIGH: 0,
-    ...Object.entries(byPriority).reduce((acc, [priority, data]) => {
-      acc[priority] =
-        data.count > 0 ? parseFloat((data.sum / data.count).toFixed(0)) : 0;
-      return acc;
-    }, {} as { [key: string]: number }),
-  };
-
-  return {
-    averageTime: parseFloat(averageTime.toFixed(0)),
-    byPriority: averageByPriority,
-  };
+  return await get<TodoMetrics>("/todos/metrics");
 };
 
 export const deleteTodo = async (id: number): Promise<void> => {